@@ -0,0 +1,161 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Generated world for the JMH benchmarks in the bench package.
+ * Writes the generated objects in the same format as assets/objects.csv and loads the world from it.
+ */
+public class BenchmarkScenario implements bench.Scenario {
+	private static final String MAP_PATH = "assets/main.tmx";
+	private static final int DELTA = 16;
+	private static final int QUERY_COUNT = 1024;
+
+	private World world;
+	private SyntheticInputSource input = new SyntheticInputSource();
+	private HashRecorder hashRecorder = new HashRecorder();
+	private List<Engineer> engineers = new ArrayList<Engineer>();
+	//The two ends of each engineer's round trip, used by moveEngineers.
+	private List<Position> mineTargets = new ArrayList<Position>();
+	private List<Position> commandCentreTargets = new ArrayList<Position>();
+	private boolean[] headingToMine;
+	private Position[] queries = new Position[QUERY_COUNT];
+
+	@Override
+	public void setup(int engineerCount, int mineCount, int commandCentreCount, long seed) throws Exception {
+		Random random = new Random(seed);
+		List<Position> walkable = walkablePositions(new Terrain(new TileGrid(MAP_PATH)));
+		List<Position> mines = new ArrayList<Position>();
+		File objectsFile = File.createTempFile("objects", ".csv");
+		objectsFile.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(objectsFile)) {
+			for (int i = 0; i < commandCentreCount; i++) {
+				writeObject(out, "command_centre", walkable.get(random.nextInt(walkable.size())));
+			}
+			for (int i = 0; i < mineCount; i++) {
+				Position mine = walkable.get(random.nextInt(walkable.size()));
+				mines.add(mine);
+				writeObject(out, i % 2 == 0 ? "metal_mine" : "unobtainium_mine", mine);
+			}
+			//Engineers start on a mine, so they begin mining straight away.
+			for (int i = 0; i < engineerCount; i++) {
+				writeObject(out, "engineer", mines.get(random.nextInt(mines.size())));
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to write " + objectsFile.getPath(), e);
+		}
+		world = new World(objectsFile.getPath());
+		for (Unit unit: world.getUnits()) {
+			if (unit instanceof Engineer) {
+				Engineer engineer = (Engineer)unit;
+				engineers.add(engineer);
+				mineTargets.add(new MapPosition(engineer.getPos().getX(), engineer.getPos().getY()));
+				commandCentreTargets.add(engineer.findNearestCommandCentre().getPos());
+			}
+		}
+		headingToMine = new boolean[engineers.size()];
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			queries[i] = new MapPosition(random.nextDouble() * world.getTerrain().getWidth() * world.getTerrain().getTileWidth(),
+					random.nextDouble() * world.getTerrain().getHeight() * world.getTerrain().getTileHeight());
+		}
+		//The first frame sets the frame time of every unit.
+		world.update(input, DELTA);
+	}
+	@Override
+	public void updateWorld() throws Exception {
+		world.update(input, DELTA);
+	}
+	@Override
+	public long updateWorldWithChecksum() throws Exception {
+		world.setHashRecorder(hashRecorder);
+		world.update(input, DELTA);
+		world.setHashRecorder(null);
+		return hashRecorder.getChecksum();
+	}
+	@Override
+	public void updateAllUnits() {
+		world.updateAllUnits(DELTA);
+	}
+	@Override
+	public void updateAllUnitsParallel() {
+		world.setParallelUnitUpdate(true);
+		world.updateAllUnits(DELTA);
+		world.setParallelUnitUpdate(false);
+	}
+	@Override
+	public int moveEngineers() {
+		int moving = 0;
+		for (int i = 0; i < engineers.size(); i++) {
+			Engineer engineer = engineers.get(i);
+			if (!engineer.isMoving()) {
+				headingToMine[i] = !headingToMine[i];
+			}
+			engineer.move(headingToMine[i] ? mineTargets.get(i) : commandCentreTargets.get(i));
+			if (engineer.isMoving())
+				moving++;
+		}
+		return moving;
+	}
+	@Override
+	public int moveEngineersFixedPoint() {
+		world.setFixedPointMovement(true);
+		int moving = moveEngineers();
+		world.setFixedPointMovement(false);
+		return moving;
+	}
+	@Override
+	public int findNearestCommandCentres() {
+		int result = 0;
+		for (int i = 0; i < engineers.size(); i++) {
+			result += System.identityHashCode(engineers.get(i).findNearestCommandCentre());
+		}
+		return result;
+	}
+	@Override
+	public int resourceLookups() {
+		int found = 0;
+		for (Position query: queries) {
+			if (world.resourceAt(query) != null)
+				found++;
+		}
+		return found;
+	}
+	@Override
+	public int buildingLookups() {
+		int found = 0;
+		for (Position query: queries) {
+			if (world.buildingAt(query) != null)
+				found++;
+		}
+		return found;
+	}
+	@Override
+	public int unitLookups() {
+		int found = 0;
+		for (Position query: queries) {
+			if (world.unitAt(query) != null)
+				found++;
+		}
+		return found;
+	}
+	//The centre of every tile which is not solid.
+	private static List<Position> walkablePositions(Terrain terrain) {
+		List<Position> walkable = new ArrayList<Position>();
+		for (int y = 0; y < terrain.getHeight(); y++) {
+			for (int x = 0; x < terrain.getWidth(); x++) {
+				if (!terrain.isSolid(x, y))
+					walkable.add(new MapPosition((x + 0.5) * terrain.getTileWidth(), (y + 0.5) * terrain.getTileHeight()));
+			}
+		}
+		return walkable;
+	}
+	private static void writeObject(PrintWriter out, String name, Position pos) {
+		out.println(String.format(Locale.ROOT, "%s,%.1f,%.1f", name, pos.getX(), pos.getY()));
+	}
+}
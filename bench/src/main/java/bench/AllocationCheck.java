@@ -0,0 +1,65 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that the steady-state world update allocates nothing.
+ * Builds a generated world, lets every engineer walk its round trip once so the paths are cached,
+ * then measures the bytes allocated by this thread over many frames.
+ * Exits with status 1 if any frame allocated, so it can be run as a build check:
+ * java -cp bench/target/benchmarks.jar:lib/slick.jar bench.AllocationCheck
+ */
+public class AllocationCheck {
+	private static final String SCENARIO_CLASS_NAME = "BenchmarkScenario";
+	private static final long SEED = 20003;
+	private static final int ENGINEERS = 1000;
+	private static final int MINES = 500;
+	private static final int COMMAND_CENTRES = 10;
+	private static final int WARMUP_FRAMES = 5000;
+	private static final int MEASURED_FRAMES = 1000;
+
+	public static void main(String[] args) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		Scenario scenario = (Scenario)Class.forName(SCENARIO_CLASS_NAME).getDeclaredConstructor().newInstance();
+		scenario.setup(ENGINEERS, MINES, COMMAND_CENTRES, SEED);
+
+		boolean failed = false;
+		failed |= check("unitMove", threads, threadId, () -> scenario.moveEngineers());
+		failed |= check("unitMoveFixedPoint", threads, threadId, () -> scenario.moveEngineersFixedPoint());
+		failed |= check("worldUpdate", threads, threadId, () -> updateWorld(scenario));
+		failed |= check("worldUpdateWithChecksum", threads, threadId, () -> updateWorldWithChecksum(scenario));
+		failed |= check("updateAllUnits", threads, threadId, () -> scenario.updateAllUnits());
+		failed |= check("unitLookups", threads, threadId, () -> scenario.unitLookups());
+		failed |= check("findNearestCommandCentre", threads, threadId, () -> scenario.findNearestCommandCentres());
+		System.exit(failed ? 1 : 0);
+	}
+	private static void updateWorld(Scenario scenario) {
+		try {
+			scenario.updateWorld();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	private static void updateWorldWithChecksum(Scenario scenario) {
+		try {
+			scenario.updateWorldWithChecksum();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	private static boolean check(String name, com.sun.management.ThreadMXBean threads, long threadId, Runnable frame) {
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			frame.run();
+		}
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_FRAMES; i++) {
+			frame.run();
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		//Reading the counter itself allocates a little, so allow less than a byte per frame.
+		boolean failed = allocated >= MEASURED_FRAMES;
+		System.out.printf("%-26s %8.1f bytes/frame %s%n", name, (double)allocated / MEASURED_FRAMES, failed ? "FAIL" : "ok");
+		return failed;
+	}
+}
@@ -0,0 +1,67 @@
+package bench;
+
+/**
+ * A generated world the benchmarks run against.
+ * The game classes live in the default package, which JMH benchmarks cannot import,
+ * so the world is driven through this interface and the BenchmarkScenario implementation.
+ */
+public interface Scenario {
+	/**
+	 * Build a world with the given number of objects.
+	 * @param engineers The number of engineers, each starting on a mine.
+	 * @param mines The number of metal and unobtainium mines.
+	 * @param commandCentres The number of command centres.
+	 * @param seed The seed for placing the objects.
+	 * @throws Exception If the world cannot be created.
+	 */
+	public void setup(int engineers, int mines, int commandCentres, long seed) throws Exception;
+	/**
+	 * Run World.update for one frame.
+	 * @throws Exception If the update fails.
+	 */
+	public void updateWorld() throws Exception;
+	/**
+	 * Run World.update for one frame with the world checksum kept up to date by a HashRecorder without a stream.
+	 * @return The checksum after the frame.
+	 * @throws Exception If the update fails.
+	 */
+	public long updateWorldWithChecksum() throws Exception;
+	/**
+	 * Run World.updateAllUnits for one frame, without resources, buildings and camera.
+	 */
+	public void updateAllUnits();
+	/**
+	 * Run World.updateAllUnits for one frame with the parallel unit update.
+	 */
+	public void updateAllUnitsParallel();
+	/**
+	 * Run Unit.move once for every engineer, sending it back and forth between its mine and a command centre.
+	 * @return The number of engineers still moving.
+	 */
+	public int moveEngineers();
+	/**
+	 * Run moveEngineers with the world in fixed point movement.
+	 * @return The number of engineers still moving.
+	 */
+	public int moveEngineersFixedPoint();
+	/**
+	 * Run Engineer.findNearestCommandCentre once for every engineer.
+	 * @return A value depending on every result, so the calls cannot be optimised away.
+	 */
+	public int findNearestCommandCentres();
+	/**
+	 * Run World.resourceAt once for every query position.
+	 * @return The number of positions with a resource.
+	 */
+	public int resourceLookups();
+	/**
+	 * Run World.buildingAt once for every query position.
+	 * @return The number of positions with a building.
+	 */
+	public int buildingLookups();
+	/**
+	 * Run World.unitAt once for every query position.
+	 * @return The number of positions with a unit.
+	 */
+	public int unitLookups();
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+
+/**
+ * Measures the heap a unit takes: builds a generated world with many engineers and one without,
+ * updates both for a while so the routes are planned, and divides the difference in live heap
+ * by the number of engineers. Paths are shared through the path finder's cache, so they are mostly left out.
+ * Run with:
+ * java -cp bench/target/benchmarks.jar:lib/slick.jar bench.UnitMemory
+ */
+public class UnitMemory {
+	private static final String SCENARIO_CLASS_NAME = "BenchmarkScenario";
+	private static final long SEED = 20003;
+	private static final int ENGINEERS = 100000;
+	private static final int MINES = 500;
+	private static final int COMMAND_CENTRES = 10;
+	private static final int FRAMES = 100;
+	private static final int GC_ROUNDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		long empty = measure(0);
+		long full = measure(ENGINEERS);
+		System.out.printf("%d engineers: %.1f bytes/unit%n", ENGINEERS, (double)(full - empty) / ENGINEERS);
+	}
+	//Get the live heap while a world with the given number of engineers is kept.
+	private static long measure(int engineers) throws Exception {
+		Scenario scenario = (Scenario)Class.forName(SCENARIO_CLASS_NAME).getDeclaredConstructor().newInstance();
+		scenario.setup(engineers, MINES, COMMAND_CENTRES, SEED);
+		for (int i = 0; i < FRAMES; i++) {
+			scenario.updateWorld();
+		}
+		long used = usedHeap();
+		//Keep the world reachable until it has been measured.
+		Reference.reachabilityFence(scenario);
+		return used;
+	}
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < GC_ROUNDS; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
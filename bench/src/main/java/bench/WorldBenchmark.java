@@ -0,0 +1,97 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the world update hot path for generated worlds of different sizes.
+ * Run with -prof gc to also report the allocation rate.
+ * The world is rebuilt before every iteration, as mining slowly empties the mines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldBenchmark {
+	private static final String SCENARIO_CLASS_NAME = "BenchmarkScenario";
+	private static final long SEED = 20003;
+
+	@Param({"100", "1000", "10000"})
+	public int engineers;
+	@Param({"50", "500"})
+	public int mines;
+	@Param({"1", "10"})
+	public int commandCentres;
+
+	private Scenario scenario;
+
+	@Setup(Level.Iteration)
+	public void setup() throws Exception {
+		scenario = (Scenario)Class.forName(SCENARIO_CLASS_NAME).getDeclaredConstructor().newInstance();
+		scenario.setup(engineers, mines, commandCentres, SEED);
+	}
+
+	@Benchmark
+	public void worldUpdate() throws Exception {
+		scenario.updateWorld();
+	}
+
+	@Benchmark
+	public long worldUpdateWithChecksum() throws Exception {
+		return scenario.updateWorldWithChecksum();
+	}
+
+	@Benchmark
+	public void updateAllUnits() {
+		scenario.updateAllUnits();
+	}
+
+	@Benchmark
+	public void updateAllUnitsParallel() {
+		scenario.updateAllUnitsParallel();
+	}
+
+	@Benchmark
+	public int unitMove() {
+		return scenario.moveEngineers();
+	}
+
+	@Benchmark
+	public int unitMoveFixedPoint() {
+		return scenario.moveEngineersFixedPoint();
+	}
+
+	@Benchmark
+	public int findNearestCommandCentre() {
+		return scenario.findNearestCommandCentres();
+	}
+
+	@Benchmark
+	public int resourceAt() {
+		return scenario.resourceLookups();
+	}
+
+	@Benchmark
+	public int buildingAt() {
+		return scenario.buildingLookups();
+	}
+
+	@Benchmark
+	public int unitAt() {
+		return scenario.unitLookups();
+	}
+}
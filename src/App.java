@@ -7,8 +7,8 @@ import org.newdawn.slick.AppGameContainer;
 import org.newdawn.slick.BasicGame;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
-import org.newdawn.slick.SlickException;
 import org.newdawn.slick.Input;
+import org.newdawn.slick.SlickException;
 
 /**
  * Main class for the game.
@@ -21,8 +21,24 @@ public class App extends BasicGame {
     public static final int WINDOW_WIDTH = 1024;
     /** window height, in pixels */
     public static final int WINDOW_HEIGHT = 768;
+    /** simulate in ticks of equal length, instead of once per frame with the frame time */
+    public static final boolean FIXED_TIMESTEP = true;
+    /** length of a simulation tick, in milliseconds */
+    public static final int TICK_MILLIS = FixedTimestep.DEFAULT_TICK_MILLIS;
+    /** most ticks simulated in one frame when catching up after a slow frame */
+    public static final int MAX_TICKS_PER_FRAME = FixedTimestep.DEFAULT_MAX_TICKS_PER_FRAME;
+    /** plan the units on all cores before updating them, see World.setParallelUnitUpdate */
+    public static final boolean PARALLEL_UNIT_UPDATE = true;
+    /** move the units in 16.16 fixed point in a new game, see World.setFixedPointMovement */
+    public static final boolean FIXED_POINT_MOVEMENT = false;
+    /** file the world is saved to with F5 and loaded from with F9 */
+    public static final String QUICK_SAVE_PATH = "quicksave.snapshot";
+    /** file the session is recorded to between two presses of F6, replayed with the Replay class */
+    public static final String RECORDING_PATH = "session.recording";
 
     private World world;
+    private InputSource input;
+    private FixedTimestep timestep = new FixedTimestep(TICK_MILLIS, MAX_TICKS_PER_FRAME);
 
     public App() {
         super("Shadow Build");
@@ -32,18 +48,64 @@ public class App extends BasicGame {
     public void init(GameContainer gc)
             throws SlickException {
         world = new World();
+        world.attachRenderer();
+        world.setParallelUnitUpdate(PARALLEL_UNIT_UPDATE);
+        world.setFixedPointMovement(FIXED_POINT_MOVEMENT);
+        input = new SlickInputSource(gc.getInput());
     }
 
     /** Update the game state for a frame.
+     * In fixed timestep mode the world is simulated for as many whole ticks as fit in the passed time,
+     * which can be none when rendering runs faster than the simulation.
      * @param gc The Slick game container object.
      * @param delta Time passed since last frame (milliseconds).
      */
     @Override
     public void update(GameContainer gc, int delta)
             throws SlickException {
-        // Get data about the current input (keyboard state).
-        Input input = gc.getInput();
-        world.update(input, delta);
+        if (input.isKeyPressed(Input.KEY_F3)) {
+            world.getProfiler().setEnabled(!world.getProfiler().isEnabled());
+        }
+        if (input.isKeyPressed(Input.KEY_F6)) {
+            toggleRecording();
+        }
+        if (input.isKeyPressed(Input.KEY_F5)) {
+            WorldSnapshot.save(world, QUICK_SAVE_PATH);
+        } else if (input.isKeyPressed(Input.KEY_F9)) {
+            //A recording only covers the world it was started in.
+            stopRecording();
+            FrameProfiler profiler = world.getProfiler();
+            World loaded = WorldSnapshot.load(QUICK_SAVE_PATH);
+            //The replaced world's objects no longer hold on to the cached images.
+            world.releaseImages();
+            world = loaded;
+            world.setProfiler(profiler);
+            world.attachRenderer();
+            world.setParallelUnitUpdate(PARALLEL_UNIT_UPDATE);
+        }
+        if (!FIXED_TIMESTEP) {
+            world.update(input, delta);
+            return;
+        }
+        int ticks = timestep.advance(delta);
+        for (int i = 0; i < ticks; i++) {
+            world.update(input, timestep.getTickMillis());
+        }
+    }
+
+    //Start recording the session, or stop and close the recording.
+    private void toggleRecording() throws SlickException {
+        if (world.getRecorder() == null)
+            world.setRecorder(new InputRecorder(world, RECORDING_PATH, InputRecorder.DEFAULT_HASH_INTERVAL));
+        else
+            stopRecording();
+    }
+    private void stopRecording() throws SlickException {
+        InputRecorder recorder = world.getRecorder();
+        if (recorder != null) {
+            world.setRecorder(null);
+            recorder.close();
+        }
     }
 
     /** Render the entire screen, so it reflects the current game state.
@@ -55,6 +117,20 @@ public class App extends BasicGame {
         world.render(g);
     }
 
+    /** Close the recording and free the cached images when the window is closed.
+     * @return Always true, the game can be closed at any time.
+     */
+    @Override
+    public boolean closeRequested() {
+        try {
+            stopRecording();
+        } catch (SlickException e) {
+            e.printStackTrace();
+        }
+        ImageCache.clear();
+        return true;
+    }
+
     /** Start-up method. Creates the game and runs it.
      * @param args Command-line arguments (ignored).
      */
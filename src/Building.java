@@ -1,14 +1,14 @@
+import java.io.IOException;
 
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
-import org.newdawn.slick.Input;
 
 /**
  * Parent class for all buildings.
  * Handles train units and other function in GameObject class like rending and update.
  */
-public class Building extends GameObject implements Selectable {
+public class Building extends GameObject implements Selectable, TimerListener {
 	/**The radius surround a unit to consider whether the building is selected*/
 	public static final int BUILDING_AREA_RADIUS = 32; 
 	
@@ -36,12 +36,7 @@ public class Building extends GameObject implements Selectable {
 	 */
 	public Building(World world, Position mapPosition, String imagePath) {
 		super(world, mapPosition, imagePath);
-		try {
-			if (highlightImage == null) highlightImage = new Image(HIGHLIGHT_IMAGE_PATH);
-		} catch (SlickException e) {
-			e.printStackTrace();
-		}
-		trainingTimer = new Timer(Unit.TIME_COST);
+		trainingTimer = new Timer(world.getTimerWheel(), Unit.TIME_COST, this);
 		menuInput = MENU_NO_CHOICE;
 	}
 	/**
@@ -97,47 +92,38 @@ public class Building extends GameObject implements Selectable {
 		selected = false;
 	}
 	/**
-	 * Update the building for a frame.
-	 * @param input The input of the player
+	 * Update the building for a frame. Training is started by train commands and finished by the timer wheel.
 	 * @param delta Time passed since last frame (milliseconds).
-	 * @param mouseButton Which mouse button did the player click 
-	 * @param clickPos The position of the click.
 	 */
 	@Override
-	public void update(Input input, int delta, int mouseButton, Position clickPos) {
-		if (mouseButton == Input.MOUSE_LEFT_BUTTON) {
-			if (selected) {
-				deselect();
-			} else {
-				//If there is a unit around mouse click position, select the unit first.
-				if (getWorld().unitAt(clickPos) == null && clickPos.distance(getPos()) <= BUILDING_AREA_RADIUS) {
-					select();
-				}
-			}
-		}		
-		if (trainingTimer.isRunning()) {
-			trainingTimer.update(delta);
-			if (trainingTimer.timeout()) {
-				addNewUnitToWorld();
-				trainingTimer.stop();
-				trainingTimer.reset();
-				menuInput = MENU_NO_CHOICE;
-			}
-		} else if (isSelected()) {
-			//When a building is selected, convert the input to corresponding number as the menuInput.
-			if (input.isKeyPressed(Input.KEY_1)) {
-				menuInput = 1;
-            } else if (input.isKeyPressed(Input.KEY_2)) {
-            	menuInput = 2;
-       	    } else if (input.isKeyPressed(Input.KEY_3)) {
-       	    	menuInput = 3;
-        	} else {
-        		menuInput = MENU_NO_CHOICE;
-        	}
-			//Convert the menuInput to the matching training unit.
-			trainingUnitType = getTrainingUnitType(menuInput);
-			startTraining();
-		}
+	public void update(int delta) {
+		
+	}
+	/**
+	 * Let the selected building train the unit of a menu choice. Only called by the world.
+	 * @param menuChoice The chosen item of the menu.
+	 */
+	public void commandTrain(int menuChoice) {
+		//While training, the timer wheel of the world tells the building when the unit is ready.
+		if (trainingTimer.isRunning())
+			return;
+		menuInput = menuChoice;
+		//Convert the menuInput to the matching training unit.
+		trainingUnitType = getTrainingUnitType(menuInput);
+		startTraining();
+		if (!trainingTimer.isRunning())
+			menuInput = MENU_NO_CHOICE;
+	}
+	/**
+	 * Add the trained unit to the world when the training timer runs out.
+	 * @param timer The training timer.
+	 */
+	@Override
+	public void timerExpired(Timer timer) {
+		addNewUnitToWorld();
+		trainingTimer.stop();
+		trainingTimer.reset();
+		menuInput = MENU_NO_CHOICE;
 	}
 	/**
 	 * Get the training time of the unit.
@@ -206,15 +192,48 @@ public class Building extends GameObject implements Selectable {
 		getWorld().addNewUnit(newUnit);
 	}
 	
+	/**
+	 * Write the selection, menu choice and training progress. See details in parent class.
+	 */
+	@Override
+	public void writeState(SnapshotWriter out) throws IOException {
+		out.putBoolean(selected);
+		out.putInt(menuInput);
+		out.putString(trainingUnitType);
+		out.putTimer(trainingTimer);
+	}
+	/**
+	 * Read the selection, menu choice and training progress. See details in parent class.
+	 */
+	@Override
+	public void readState(SnapshotReader in) {
+		selected = in.getBoolean();
+		menuInput = in.getInt();
+		trainingUnitType = in.getString();
+		in.readTimer(trainingTimer);
+	}
+	
+	/**
+	 * Buildings are drawn above resources and below units.
+	 */
+	@Override
+	public int getRenderLayer() {
+		return SpriteBatch.BUILDING_LAYER;
+	}
 	/**
 	 * Render method see details in parent class.
 	 */
 	@Override
-	public void render() {
+	public void render(SpriteBatch batch) {
 		if(selected) {
-		    highlightImage.drawCentered((float)getScreenPos().getX(), (float)getScreenPos().getY());
+			try {
+				if (highlightImage == null) highlightImage = ImageCache.acquire(HIGHLIGHT_IMAGE_PATH);
+			} catch (SlickException e) {
+				e.printStackTrace();
+			}
+		    batch.draw(highlightImage, getScreenX(), getScreenY(), SpriteBatch.BUILDING_HIGHLIGHT_LAYER);
 		}
-		super.render();
+		super.render(batch);
 	}
 	
 	/**
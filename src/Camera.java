@@ -1,14 +1,12 @@
-import org.newdawn.slick.tiled.TiledMap;
-import org.newdawn.slick.Input;
 /**
  * Camera class. Capture part of world.
  * Can follow objects and move independently.
  */
 public class Camera {
 	/** Initially camera is at (0,0) of  the map.*/
-	public static final Position INITIAL_POSITION = new Position(0, 0);
+	public static final Position INITIAL_POSITION = new MapPosition(0, 0);
 	
-	private TiledMap map;
+	private Terrain map;
 	private double left;
 	private double top;
 	private GameObject followingObject;
@@ -18,7 +16,7 @@ public class Camera {
 	 * Constructor. Initially making camera at the left-top corner of the map.
 	 * @param map The map of the world.
 	 */
-	public Camera(TiledMap map) {
+	public Camera(Terrain map) {
 		this.map = map;
 		left = INITIAL_POSITION.getX();
 		top =INITIAL_POSITION.getY();
@@ -38,6 +36,22 @@ public class Camera {
 	public double getTop() {
 		return top;
 	}
+	/**
+	 * Move the camera to a given top-left corner, like when a saved world is loaded.
+	 * @param left The left edge of the camera on the map.
+	 * @param top The top edge of the camera on the map.
+	 */
+	public void setPosition(double left, double top) {
+		this.left = left;
+		this.top = top;
+	}
+	/**
+	 * Get the game object the camera follows.
+	 * @return followingObject The followed game object, null if the camera moves independently.
+	 */
+	public GameObject getFollowingObject() {
+		return followingObject;
+	}
 	/**
 	 * Set following object to given game object.
 	 * @param gameObj To be followed game object.
@@ -46,44 +60,31 @@ public class Camera {
 		followingObject = gameObj;
 	}
 	/**
-	 * Update camera position for a frame.
-	 * @param input The input of the player
+	 * Move the camera for a frame in a direction, given by a camera pan command.
+	 * @param directionX -1 to move left, 1 to move right, 0 to keep the x-position.
+	 * @param directionY -1 to move up, 1 to move down, 0 to keep the y-position.
 	 * @param delta Time passed since last frame (milliseconds).
 	 */
-	public void update(Input input, int delta) {
-		//When KEY_W,A,S,D are pressed, the camera will move to matching direction for delta*speed.
+	public void pan(int directionX, int directionY, int delta) {
+		//The camera moves delta*speed in the direction, but not past the edges of the map.
 		double manualMoveDistance = delta*CAMERA_MANUAL_MOVE_SPEED;
-		if (input.isKeyDown(Input.KEY_W)) {
-			if(top - manualMoveDistance >= 0) {
-				top -= manualMoveDistance;
-			} else {
-				top = 0;
-			}
-			//When camera is moved by input. It will stop following objects.
-			followingObject = null;
-		} else if (input.isKeyDown(Input.KEY_S)) {
-			if(top + manualMoveDistance <= map.getTileHeight()*map.getHeight()-App.WINDOW_HEIGHT) {
-				top += manualMoveDistance;
-			} else {
-				top = map.getTileHeight()*map.getHeight()-App.WINDOW_HEIGHT;
-			}
-			followingObject = null;
-		} else if (input.isKeyDown(Input.KEY_A)) {
-			if(left - manualMoveDistance >= 0) {
-				left -= manualMoveDistance;		
-			} else {
-				left = 0;
-			}
-			followingObject = null;
-		} else if (input.isKeyDown(Input.KEY_D)) {
-			if(left + manualMoveDistance <= map.getTileWidth()*map.getWidth()-App.WINDOW_WIDTH) {
-				left += manualMoveDistance;
-			} else {
-				left = map.getTileWidth()*map.getWidth()-App.WINDOW_WIDTH;
-			}
-			followingObject = null;
+		if (directionY < 0) {
+			top = Math.max(top - manualMoveDistance, 0);
+		} else if (directionY > 0) {
+			top = Math.min(top + manualMoveDistance, map.getTileHeight()*map.getHeight()-App.WINDOW_HEIGHT);
 		}
-		
+		if (directionX < 0) {
+			left = Math.max(left - manualMoveDistance, 0);
+		} else if (directionX > 0) {
+			left = Math.min(left + manualMoveDistance, map.getTileWidth()*map.getWidth()-App.WINDOW_WIDTH);
+		}
+		//When camera is moved by input. It will stop following objects.
+		followingObject = null;
+	}
+	/**
+	 * Update camera position for a frame, keeping the followed object in the middle.
+	 */
+	public void update() {
 		if (followingObject != null) {
 			followObj(followingObject);
 		}
@@ -111,26 +112,36 @@ public class Camera {
 	}
 	
 	/**
-	 * Transfer camera coordinates to map coordinates 
-	 * @param pos The object position on camera.
-	 * @return The position on map.
+	 * Transfer a camera x-coordinate to a map x-coordinate
+	 * @param x The x-position on camera.
+	 * @return The x-position on map.
+	 */
+	public double screenXToMapX(double x) {
+		return x + left;
+	}
+	/**
+	 * Transfer a camera y-coordinate to a map y-coordinate
+	 * @param y The y-position on camera.
+	 * @return The y-position on map.
+	 */
+	public double screenYToMapY(double y) {
+		return y + top;
+	}
+	/**
+	 * Transfer a map x-coordinate to a camera x-coordinate
+	 * @param x The x-position on map.
+	 * @return The x-position on camera.
 	 */
-	public Position screenPosToMapPos(Position pos) {
-		double x = pos.getX() + left;
-		double y = pos.getY() + top;
-		Position mapPosition = new Position(x,y);
-		return mapPosition;
+	public double mapXToScreenX(double x) {
+		return x - this.left;
 	}
 	/**
-	 * Transfer map coordinates to camera coordinates 
-	 * @param pos The object position on map.
-	 * @return  The position on camera.
+	 * Transfer a map y-coordinate to a camera y-coordinate
+	 * @param y The y-position on map.
+	 * @return The y-position on camera.
 	 */
-	public Position mapPosToScreenPos(Position pos) {
-		double x = pos.getX() - this.left;
-		double y = pos.getY() - this.top;
-		Position screenPosition = new Position(x,y);
-		return screenPosition;
+	public double mapYToScreenY(double y) {
+		return y - this.top;
 	}	
 }
 
@@ -0,0 +1,141 @@
+/**
+ * The player commands of one tick, in the order they were given. The world reads the input into commands
+ * once per frame and applies them at the start of the tick, so no game object polls the input itself.
+ * Commands are kept in parallel primitive arrays, so a buffer can be cleared and filled every frame
+ * without creating objects.
+ */
+public class CommandBuffer {
+	/**Select the unit or building at a map position: x and y.*/
+	public static final int SELECT = 1;
+	/**Order the selected unit to walk to a map position: x and y.*/
+	public static final int MOVE = 2;
+	/**Let the selected building train the unit of a menu choice: value.*/
+	public static final int TRAIN = 3;
+	/**Let the selected unit create the building of a menu choice: value.*/
+	public static final int BUILD = 4;
+	/**Move the camera for one tick in a direction: x and y, each -1, 0 or 1.*/
+	public static final int CAMERA_PAN = 5;
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private int size = 0;
+	private int[] types = new int[INITIAL_CAPACITY];
+	private double[] xs = new double[INITIAL_CAPACITY];
+	private double[] ys = new double[INITIAL_CAPACITY];
+	private int[] values = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Get the number of commands in the buffer.
+	 * @return size The number of commands.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Remove all the commands, keeping the arrays for the next tick.
+	 */
+	public void clear() {
+		size = 0;
+	}
+	/**
+	 * Add a select command.
+	 * @param x The x-position on the map.
+	 * @param y The y-position on the map.
+	 */
+	public void select(double x, double y) {
+		add(SELECT, x, y, 0);
+	}
+	/**
+	 * Add a move command.
+	 * @param x The x-position on the map.
+	 * @param y The y-position on the map.
+	 */
+	public void move(double x, double y) {
+		add(MOVE, x, y, 0);
+	}
+	/**
+	 * Add a train command.
+	 * @param menuChoice The chosen item of the building menu, starting at 1.
+	 */
+	public void train(int menuChoice) {
+		add(TRAIN, 0, 0, menuChoice);
+	}
+	/**
+	 * Add a build command.
+	 * @param menuChoice The chosen item of the unit menu, starting at 1.
+	 */
+	public void build(int menuChoice) {
+		add(BUILD, 0, 0, menuChoice);
+	}
+	/**
+	 * Add a camera pan command.
+	 * @param directionX -1 to move left, 1 to move right, 0 to keep the x-position.
+	 * @param directionY -1 to move up, 1 to move down, 0 to keep the y-position.
+	 */
+	public void panCamera(int directionX, int directionY) {
+		add(CAMERA_PAN, directionX, directionY, 0);
+	}
+	/**
+	 * Add a command of any type, like one read back from a recording.
+	 * @param type One of the command type constants.
+	 * @param x The x-value of the command, 0 if it has none.
+	 * @param y The y-value of the command, 0 if it has none.
+	 * @param value The integer value of the command, 0 if it has none.
+	 */
+	public void add(int type, double x, double y, int value) {
+		if (size == types.length)
+			grow();
+		types[size] = type;
+		xs[size] = x;
+		ys[size] = y;
+		values[size] = value;
+		size++;
+	}
+	/**
+	 * Get the type of a command.
+	 * @param index The index of the command, in the order they were added.
+	 * @return One of the command type constants.
+	 */
+	public int getType(int index) {
+		return types[index];
+	}
+	/**
+	 * Get the x-value of a command.
+	 * @param index The index of the command, in the order they were added.
+	 * @return The x-position on the map, the x-direction of a camera pan, or 0.
+	 */
+	public double getX(int index) {
+		return xs[index];
+	}
+	/**
+	 * Get the y-value of a command.
+	 * @param index The index of the command, in the order they were added.
+	 * @return The y-position on the map, the y-direction of a camera pan, or 0.
+	 */
+	public double getY(int index) {
+		return ys[index];
+	}
+	/**
+	 * Get the integer value of a command.
+	 * @param index The index of the command, in the order they were added.
+	 * @return The menu choice of a train or build command, or 0.
+	 */
+	public int getValue(int index) {
+		return values[index];
+	}
+	private void grow() {
+		int capacity = types.length * 2;
+		int[] newTypes = new int[capacity];
+		double[] newXs = new double[capacity];
+		double[] newYs = new double[capacity];
+		int[] newValues = new int[capacity];
+		System.arraycopy(types, 0, newTypes, 0, size);
+		System.arraycopy(xs, 0, newXs, 0, size);
+		System.arraycopy(ys, 0, newYs, 0, size);
+		System.arraycopy(values, 0, newValues, 0, size);
+		types = newTypes;
+		xs = newXs;
+		ys = newYs;
+		values = newValues;
+	}
+}
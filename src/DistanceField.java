@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * Walking distance from every tile to the nearest of a set of source tiles, like the command centres.
+ * Built with a multi-source Dijkstra search using the same moves as the PathFinder, and updated
+ * incrementally when a source is added. Each tile stores its nearest source and the next tile towards it,
+ * so finding the nearest source and the way there is one array lookup.
+ */
+public class DistanceField {
+	/**Distance of a tile no source can be reached from.*/
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	/**Source index of a tile no source can be reached from.*/
+	public static final int NO_SOURCE = -1;
+	/**Next node of a source tile or a tile no source can be reached from.*/
+	public static final int NO_NODE = -1;
+
+	//Costs of a straight and a diagonal step, the same as the PathFinder.
+	private static final int STRAIGHT_COST = 10;
+	private static final int DIAGONAL_COST = 14;
+	private static final int[] NEIGHBOUR_DX = {1, -1, 0, 0, 1, 1, -1, -1};
+	private static final int[] NEIGHBOUR_DY = {0, 0, 1, -1, 1, -1, 1, -1};
+	private static final int STRAIGHT_NEIGHBOURS = 4;
+	private static final int NOT_IN_HEAP = -1;
+
+	private Terrain terrain;
+	private int width;
+	private int sourceCount = 0;
+	//Changes whenever a source is added, so users can tell when their lookups are out of date.
+	private int version = 0;
+	//Per tile: the distance to the nearest source, the index of that source and the next tile towards it.
+	private int[] distance;
+	private int[] source;
+	private int[] next;
+	//Binary min-heap of node ids ordered by distance, with the heap slot of each node for decreasing keys.
+	private int[] heap;
+	private int[] heapSlot;
+	private int heapSize = 0;
+
+	/**
+	 * Constructor. Create a field without sources, where every tile is unreachable.
+	 * @param terrain The tile flags to walk on.
+	 */
+	public DistanceField(Terrain terrain) {
+		this.terrain = terrain;
+		width = terrain.getWidth();
+		int nodeCount = terrain.getWidth() * terrain.getHeight();
+		distance = new int[nodeCount];
+		source = new int[nodeCount];
+		next = new int[nodeCount];
+		heap = new int[nodeCount];
+		heapSlot = new int[nodeCount];
+		Arrays.fill(distance, UNREACHABLE);
+		Arrays.fill(source, NO_SOURCE);
+		Arrays.fill(next, NO_NODE);
+		Arrays.fill(heapSlot, NOT_IN_HEAP);
+	}
+	/**
+	 * Add a source tile and update the tiles which are now closer to it than to any other source.
+	 * Only those tiles are searched, so adding a source costs far less than rebuilding the field.
+	 * @param tileX The column of the source tile.
+	 * @param tileY The row of the source tile.
+	 * @return The index of the source, counting from 0 in the order the sources were added.
+	 */
+	public int addSource(int tileX, int tileY) {
+		int index = sourceCount++;
+		version++;
+		if (!terrain.contains(tileX, tileY))
+			return index;
+		int node = nodeOf(tileX, tileY);
+		if (distance[node] > 0) {
+			distance[node] = 0;
+			source[node] = index;
+			next[node] = NO_NODE;
+			push(node);
+		}
+		while (heapSize > 0) {
+			relaxNeighbours(pop());
+		}
+		return index;
+	}
+	/**
+	 * Get the number of sources added.
+	 * @return sourceCount The number of sources.
+	 */
+	public int getSourceCount() {
+		return sourceCount;
+	}
+	/**
+	 * Get the number of times the field has changed.
+	 * @return version A number which changes whenever a source is added.
+	 */
+	public int getVersion() {
+		return version;
+	}
+	/**
+	 * Get the node id of a tile, the same as PathFinder.nodeOf.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return The node id.
+	 */
+	public int nodeOf(int tileX, int tileY) {
+		return tileY * width + tileX;
+	}
+	/**
+	 * Get the nearest source by walking distance.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return The index of the nearest source, NO_SOURCE if none can be reached.
+	 */
+	public int nearestSource(int tileX, int tileY) {
+		if (!terrain.contains(tileX, tileY))
+			return NO_SOURCE;
+		return source[nodeOf(tileX, tileY)];
+	}
+	/**
+	 * Get the walking distance to the nearest source, in the PathFinder costs of 10 per straight step.
+	 * @param node The node id of the tile.
+	 * @return The distance, UNREACHABLE if no source can be reached.
+	 */
+	public int getDistance(int node) {
+		return distance[node];
+	}
+	/**
+	 * Get the next tile on a shortest route to the nearest source.
+	 * @param node The node id of the tile.
+	 * @return The node id of the next tile, NO_NODE on a source tile or if no source can be reached.
+	 */
+	public int nextNode(int node) {
+		return next[node];
+	}
+	//Lower the distance of the neighbours which are closer to a source through this node.
+	private void relaxNeighbours(int node) {
+		int x = node % width;
+		int y = node / width;
+		for (int i = 0; i < NEIGHBOUR_DX.length; i++) {
+			int nextX = x + NEIGHBOUR_DX[i];
+			int nextY = y + NEIGHBOUR_DY[i];
+			if (terrain.isSolid(nextX, nextY))
+				continue;
+			boolean diagonal = i >= STRAIGHT_NEIGHBOURS;
+			//A diagonal step is only allowed when both tiles beside it are walkable, in either direction.
+			if (diagonal && (terrain.isSolid(nextX, y) || terrain.isSolid(x, nextY)))
+				continue;
+			int neighbour = nodeOf(nextX, nextY);
+			int d = distance[node] + (diagonal ? DIAGONAL_COST : STRAIGHT_COST);
+			if (d < distance[neighbour]) {
+				distance[neighbour] = d;
+				source[neighbour] = source[node];
+				next[neighbour] = node;
+				if (heapSlot[neighbour] == NOT_IN_HEAP)
+					push(neighbour);
+				else
+					siftUp(heapSlot[neighbour]);
+			}
+		}
+	}
+	private void push(int node) {
+		heap[heapSize] = node;
+		heapSlot[node] = heapSize;
+		heapSize++;
+		siftUp(heapSize - 1);
+	}
+	private int pop() {
+		int top = heap[0];
+		heapSlot[top] = NOT_IN_HEAP;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapSlot[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+	private void siftUp(int slot) {
+		int node = heap[slot];
+		while (slot > 0) {
+			int parentSlot = (slot - 1) / 2;
+			if (distance[heap[parentSlot]] <= distance[node])
+				break;
+			heap[slot] = heap[parentSlot];
+			heapSlot[heap[slot]] = slot;
+			slot = parentSlot;
+		}
+		heap[slot] = node;
+		heapSlot[node] = slot;
+	}
+	private void siftDown(int slot) {
+		int node = heap[slot];
+		while (true) {
+			int child = slot * 2 + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && distance[heap[child + 1]] < distance[heap[child]])
+				child++;
+			if (distance[node] <= distance[heap[child]])
+				break;
+			heap[slot] = heap[child];
+			heapSlot[heap[slot]] = slot;
+			slot = child;
+		}
+		heap[slot] = node;
+		heapSlot[node] = slot;
+	}
+}
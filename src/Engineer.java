@@ -1,4 +1,5 @@
-import org.newdawn.slick.Input;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Child class of  Unit. 
@@ -10,13 +11,16 @@ public class Engineer extends Unit {
 	
 	private static final String IMAGE_PATH = "assets/units/engineer.png";
 	private static final double ENGINEER_SPEED = 0.1;
-	private static final int INITIAL_CAPACITY = 2;
-	private static final int CAPACITY_INCREMENT = 1;
-	private static int capacity = INITIAL_CAPACITY;
-	private Resource carryingRes;
-	private Resource miningResource;
-	private CommandCentre nearestCC;
-	private boolean isMiningMode = false;
+	/** Amount of resource an engineer carries at the start of the game. */
+	public static final int INITIAL_CAPACITY = 2;
+	/** Extra amount an engineer carries for every activated pylon. */
+	public static final int CAPACITY_INCREMENT = 1;
+	//Handles of the mined resource and the command centre carried to, which stop resolving when they leave the world.
+	private long miningResourceHandle = EntityRegistry.NO_HANDLE;
+	private long nearestCCHandle = EntityRegistry.NO_HANDLE;
+	//Where the mined resource is, to walk back to even after it has been used up. NaN when not mining.
+	private double miningX = Double.NaN;
+	private double miningY = Double.NaN;
 	private Timer miningTimer;
 
 	/**
@@ -29,70 +33,128 @@ public class Engineer extends Unit {
 		setTargetPosition(mapPosition);
 		//Engineer cannot create buildings.
 		setCanBuild(false);
-		miningTimer = new Timer(Resource.MINING_TIME);
+		getStore().setMode(getStoreSlot(), UnitStore.ACTS, true);
+		miningTimer = new Timer(world.getTimerWheel(), Resource.MINING_TIME, this);
 	}
 	
 	/**
-	 * Update behaviour in world.
-	 * @param input The input of the player
+	 * Look up the resource an idle engineer stands on. See details in parent Unit class.
+	 */
+	@Override
+	public void planAct(int delta) {
+		if (!isMiningMode() && !isMoving()) {
+			getStore().setPlannedResource(getStoreSlot(), handleOf(getWorld().resourceAt(getPos())));
+		}
+	}
+	/**
+	 * Mine, carry the resource to a command centre and drop it off. See details in parent Unit class.
 	 * @param delta Time passed since last frame (milliseconds).
-	 * @param mouseButton Which mouse button did the player click 
-	 * @param clickPos The position of the click.
 	 */
 	@Override
-	public void update(Input input, int delta, int mouseButton, Position clickPos) {
-		super.update(input, delta, mouseButton, clickPos);	
+	public void act(int delta) {
 		//When engineer is close enough to a resource and not moving for mining time 	
 		//without interrupted by mouse click, the engineer will mine the resource.
-		if (isMiningMode) {
-			//When engineer is mining and controlled to move by mouse click, engineer will stop mining.
-			if (isManualControl(mouseButton)) {
-				stopMining();
-			} 
-			//If engineer mined for enough time, it will stop mining and carry it to CommandCentre.
-			else if (isMining()) {
-				miningTimer.update(delta);
-				if (miningTimer.timeout()) {
-					transResourceToNearestCommandCentre();
-					//After mining, timer will stop and reset.
-					miningTimer.stop();
-					miningTimer.reset();
-				}
-			} 
+		if (isMiningMode()) {
+			//While mining, the timer wheel of the world tells the engineer when it has mined for enough time.
 			//When engineer is not moving and check its position and decide what to do.
-			else if (!isMoving()) {
-				//When its position near the mining resource which is not destroyed, it will start mining.
-				if (getPos().equals(miningResource.getPos())) {
-					if (!miningResource.isDestroyed())
+			if (!isMining() && !isMoving()) {
+				//When its position near the mining resource which is still in the world, it will start mining.
+				if (getPos().isAt(miningX, miningY)) {
+					Resource miningResource = getMiningResource();
+					if (miningResource != null && !miningResource.isDestroyed())
 						startMining(miningResource);
 					else
 						stopMining();
 				} 
 				//When its position near the nearest commandCentre, it will move to mining resource.
-				else if (getPos().equals(nearestCC.getPos())) {
-					setTargetPosition(miningResource.getPos());
+				else if (isAtNearestCommandCentre()) {
+					setTargetPosition(miningX, miningY);
 				}
 			}
 		} 
 		//If engineer is not move, near a resource and is not mining a resource, it will set the ressource to mining resource.
 		else {
 			if (!isMoving()) {
-				Resource res = getWorld().resourceAt(getPos());
+				Resource res = getStore().hasPlannedResource(getStoreSlot())
+						? (Resource)getWorld().getEntity(getStore().getPlannedResource(getStoreSlot())) : getWorld().resourceAt(getPos());
 				if (res != null) {
 					startMining(res);
 				}
 			}
 		}
 		//If engineer is closed to a commandCentre, it will drop the resource.
-		if (getWorld().buildingAt(getPos()) instanceof CommandCentre && carryingRes != null)
+		if (getCarryingAmount() > 0 && getWorld().buildingAt(getPos()) instanceof CommandCentre)
 			dropOffResource();
 	}
 	/**
-	 * @param mouseButton Right or left mouse button which is the input.
-	 * @return Whether engineer is being controlled by player.
+	 * If engineer mined for enough time, it will stop mining and carry it to CommandCentre.
+	 * Other timers are handled in parent Unit class.
+	 * @param timer The timer which ran out.
+	 */
+	@Override
+	public void timerExpired(Timer timer) {
+		if (timer != miningTimer) {
+			super.timerExpired(timer);
+			return;
+		}
+		transResourceToNearestCommandCentre();
+		//After mining, timer will stop and reset.
+		miningTimer.stop();
+		miningTimer.reset();
+	}
+	/**
+	 * When engineer is controlled to move by mouse click, engineer will stop mining. See details in parent class.
+	 */
+	@Override
+	public void commandMove(Position pos) {
+		super.commandMove(pos);
+		if (isMiningMode())
+			stopMining();
+	}
+	/**
+	 * An engineer is settled while it stands still mining, or has nothing to mine or drop off where it stands.
+	 * See details in parent class.
+	 */
+	@Override
+	public boolean isSettled() {
+		if (isMoving())
+			return false;
+		//Acting would start or stop mining, or send the engineer back to its resource.
+		if (isMiningMode() ? !isMining() && (getPos().isAt(miningX, miningY) || isAtNearestCommandCentre())
+				: getWorld().resourceAt(getPos()) != null)
+			return false;
+		//Acting would drop off the carried resource.
+		return getCarryingAmount() == 0 || !(getWorld().buildingAt(getPos()) instanceof CommandCentre);
+	}
+	/**
+	 * Get the amount of mined resource the engineer is carrying.
+	 * @return The carried amount of metal or unobtainium.
 	 */
-	public boolean isManualControl(int mouseButton) {
-		return isSelected() && mouseButton == Input.MOUSE_RIGHT_BUTTON;
+	public int getCarryingAmount() {
+		return getStore().getCargo(getStoreSlot());
+	}
+	/**
+	 * Get the resource the engineer is working.
+	 * @return miningResource The mined resource, null when the engineer is not mining.
+	 */
+	public Resource getMiningResource() {
+		return (Resource)getWorld().getEntity(miningResourceHandle);
+	}
+	//Whether the engineer stands on the command centre it carried its resource to.
+	private boolean isAtNearestCommandCentre() {
+		GameObject nearestCC = getWorld().getEntity(nearestCCHandle);
+		return nearestCC != null && getPos().equals(nearestCC.getPos());
+	}
+	/**
+	 * Get the timer of the engineer mining its resource.
+	 * @return miningTimer The mining timer.
+	 */
+	public Timer getMiningTimer() {
+		return miningTimer;
+	}
+	//Whether the engineer is working a resource: mining it or carrying its resource to a command centre.
+	private boolean isMiningMode() {
+		return getStore().hasFlag(getStoreSlot(), UnitStore.MINING_MODE);
 	}
 	/**
 	 * Get the status about whether engineer is mining.
@@ -107,9 +169,11 @@ public class Engineer extends Unit {
 	 */
 	public void startMining(Resource res) {
 		if (res.getAmount() > 0) {
-			miningResource = res;
+			miningResourceHandle = res.getHandle();
+			miningX = res.getPos().getX();
+			miningY = res.getPos().getY();
 			miningTimer.start();
-			isMiningMode = true;
+			getStore().setFlag(getStoreSlot(), UnitStore.MINING_MODE, true);
 		}
 	}
 	
@@ -117,36 +181,52 @@ public class Engineer extends Unit {
 	 * Let engineer stop mining resource.
 	 */
 	public void stopMining() {
-		miningResource = null;
+		miningResourceHandle = EntityRegistry.NO_HANDLE;
+		miningX = Double.NaN;
+		miningY = Double.NaN;
 		miningTimer.stop();
 		miningTimer.reset();
-		isMiningMode = false;
+		getStore().setFlag(getStoreSlot(), UnitStore.MINING_MODE, false);
 	}
 	/**
 	 * Transport resource to nearest commandCentre.
 	 */
 	public void transResourceToNearestCommandCentre() {
-		if (carryingRes == null) {
-			int minedAmount = miningResource.beMined(capacity);
+		Resource miningResource = getMiningResource();
+		//A resource used up by other engineers while this one was mining yields nothing.
+		if (getCarryingAmount() == 0 && miningResource != null) {
+			int minedAmount = miningResource.beMined(getWorld().getEngineerCapacity());
 			if (minedAmount > 0) {
-				if (miningResource instanceof Metal)
-					carryingRes = new Metal(getWorld(), null, minedAmount);
-				else if (miningResource instanceof Unobtainium)
-					carryingRes = new Unobtainium(getWorld(), null, minedAmount);
+				getStore().setCargo(getStoreSlot(), minedAmount);
+				getStore().setFlag(getStoreSlot(), UnitStore.CARRYING_METAL, miningResource instanceof Metal);
 			}
 		}
-		nearestCC = findNearestCommandCentre();
-		setTargetPosition(nearestCC.getPos());
+		//Walk down the distance field when the command centre was found on it, otherwise search a path.
+		CommandCentre fieldCC = getWorld().nearestCommandCentre(getPos());
+		if (fieldCC != null) {
+			nearestCCHandle = fieldCC.getHandle();
+			setTargetPosition(fieldCC.getPos(), getWorld().getCommandCentreField());
+		} else {
+			CommandCentre nearestCC = findNearestCommandCentre();
+			nearestCCHandle = nearestCC.getHandle();
+			setTargetPosition(nearestCC.getPos());
+		}
 	}
 	/**
-	 * Get the commandCentre which is closest to the engineer.
+	 * Get the commandCentre which is closest to the engineer by walking distance.
+	 * When no command centre can be reached by walking, the closest in a straight line is used.
 	 * @return The nearest CommandCentre.
 	 */
 	public CommandCentre findNearestCommandCentre() {
+		CommandCentre fieldCC = getWorld().nearestCommandCentre(getPos());
+		if (fieldCC != null)
+			return fieldCC;
 		CommandCentre nearestCommandCentre = null;
 		double minDistance = -1.0;
-		for (CommandCentre cc:getWorld().getCommandCentres()) {
-			double toCCDistance = getPos().distance(cc.getPos());
+		List<CommandCentre> commandCentres = getWorld().getCommandCentres();
+		for (int i = 0; i < commandCentres.size(); i++) {
+			CommandCentre cc = commandCentres.get(i);
+			double toCCDistance = getPos().distanceSquared(cc.getPos());
 			if (nearestCommandCentre == null || minDistance < 0) {
 				nearestCommandCentre = cc;
 				minDistance = toCCDistance;
@@ -158,22 +238,44 @@ public class Engineer extends Unit {
 		return nearestCommandCentre;
 	}
 	/**
-	 * Drop off resource which is carried by the engineer to CommandCentre.
+	 * Write the mined resource, the command centre carried to and the mining progress. See details in parent class.
 	 */
-	public void dropOffResource() {
-		if (carryingRes == null)
-			return;
-		else if (carryingRes instanceof Metal) {
-			getWorld().addMetalAmount(((Metal)carryingRes).getAmount());
-		}
-		else if (carryingRes instanceof Unobtainium)
-			getWorld().addUnobtainiumAmount(((Unobtainium)carryingRes).getAmount());
-		carryingRes = null;
+	@Override
+	public void writeState(SnapshotWriter out) throws IOException {
+		super.writeState(out);
+		out.putReference(getMiningResource());
+		out.putDouble(miningX);
+		out.putDouble(miningY);
+		out.putReference(getWorld().getEntity(nearestCCHandle));
+		out.putTimer(miningTimer);
 	}
 	/**
-	 * Increase capacity of engineer.
+	 * Read the mined resource, the command centre carried to and the mining progress. See details in parent class.
 	 */
-	public static void increaseCapacity() {
-		capacity += CAPACITY_INCREMENT;
+	@Override
+	public void readState(SnapshotReader in) {
+		super.readState(in);
+		miningResourceHandle = handleOf(in.getResourceReference());
+		miningX = in.getDouble();
+		miningY = in.getDouble();
+		nearestCCHandle = handleOf(in.getBuildingReference());
+		in.readTimer(miningTimer);
+	}
+	//Resources and buildings are added to the world before the units of a snapshot, so they have their handles.
+	private static long handleOf(GameObject obj) {
+		return obj == null ? EntityRegistry.NO_HANDLE : obj.getHandle();
+	}
+	/**
+	 * Drop off resource which is carried by the engineer to CommandCentre.
+	 */
+	public void dropOffResource() {
+		int carryingAmount = getCarryingAmount();
+		if (carryingAmount == 0)
+			return;
+		else if (getStore().hasFlag(getStoreSlot(), UnitStore.CARRYING_METAL))
+			getWorld().addMetalAmount(carryingAmount);
+		else
+			getWorld().addUnobtainiumAmount(carryingAmount);
+		getStore().setCargo(getStoreSlot(), 0);
 	}
 }
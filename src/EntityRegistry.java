@@ -0,0 +1,97 @@
+/**
+ * Gives every game object in a world a generational handle: the index of a slot in this registry together
+ * with the generation of the slot. When an object is removed its slot gets a new generation before it is reused,
+ * so a handle kept by another object stops resolving to anything, instead of to whatever was added later.
+ */
+public class EntityRegistry {
+	/**Handle of an object which is not in a world.*/
+	public static final long NO_HANDLE = -1;
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final int INDEX_BITS = 32;
+	private static final long INDEX_MASK = 0xFFFFFFFFL;
+	private static final int NO_SLOT = -1;
+
+	private GameObject[] objects = new GameObject[INITIAL_CAPACITY];
+	private int[] generations = new int[INITIAL_CAPACITY];
+	//Removed slots are reused last in first out, linked through nextFree.
+	private int[] nextFree = new int[INITIAL_CAPACITY];
+	private int firstFree = NO_SLOT;
+	private int used = 0;
+	private int size = 0;
+
+	/**
+	 * Get the number of objects with a handle.
+	 * @return size The number of objects.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Give an object a handle.
+	 * @param obj The object.
+	 * @return The handle of the object.
+	 */
+	public long register(GameObject obj) {
+		int slot;
+		if (firstFree != NO_SLOT) {
+			slot = firstFree;
+			firstFree = nextFree[slot];
+		} else {
+			if (used == objects.length)
+				grow();
+			slot = used++;
+		}
+		objects[slot] = obj;
+		size++;
+		return ((long)generations[slot] << INDEX_BITS) | slot;
+	}
+	/**
+	 * Take the handle of an object away. The handle and any copies of it no longer resolve.
+	 * @param handle The handle of the object.
+	 */
+	public void release(long handle) {
+		if (!isAlive(handle))
+			return;
+		int slot = slotOf(handle);
+		objects[slot] = null;
+		generations[slot]++;
+		nextFree[slot] = firstFree;
+		firstFree = slot;
+		size--;
+	}
+	/**
+	 * Check whether a handle still belongs to an object in the world.
+	 * @param handle The handle.
+	 * @return Whether the handle resolves.
+	 */
+	public boolean isAlive(long handle) {
+		if (handle == NO_HANDLE)
+			return false;
+		int slot = slotOf(handle);
+		return slot < used && objects[slot] != null && generations[slot] == (int)(handle >>> INDEX_BITS);
+	}
+	/**
+	 * Get the object of a handle.
+	 * @param handle The handle.
+	 * @return The object, or null if it has been removed from the world.
+	 */
+	public GameObject get(long handle) {
+		return isAlive(handle) ? objects[slotOf(handle)] : null;
+	}
+	private static int slotOf(long handle) {
+		return (int)(handle & INDEX_MASK);
+	}
+	private void grow() {
+		int capacity = objects.length * 2;
+		GameObject[] newObjects = new GameObject[capacity];
+		int[] newGenerations = new int[capacity];
+		int[] newNextFree = new int[capacity];
+		System.arraycopy(objects, 0, newObjects, 0, used);
+		System.arraycopy(generations, 0, newGenerations, 0, used);
+		System.arraycopy(nextFree, 0, newNextFree, 0, used);
+		objects = newObjects;
+		generations = newGenerations;
+		nextFree = newNextFree;
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Coordinates in 16.16 fixed point: an int holding the map position in 1/65536ths of a pixel,
+ * which covers maps up to 32767 pixels wide. The arithmetic is done on integers only, so it gives the
+ * same result on every machine, unlike the trigonometric functions, whose results may differ in the last bit.
+ * A fixed point value converts to a double and back without loss, so positions on the fixed point grid
+ * can be kept in the double fields of MapPosition and UnitStore.
+ */
+public class FixedPoint {
+	/**Number of bits after the binary point.*/
+	public static final int FRACTION_BITS = 16;
+	/**The fixed point value of 1.*/
+	public static final int ONE = 1 << FRACTION_BITS;
+	/**Position.DISTANCE_TOLERANCE in fixed point.*/
+	public static final int DISTANCE_TOLERANCE = toFixed(Position.DISTANCE_TOLERANCE);
+	/**Square of DISTANCE_TOLERANCE, to compare with squared distances.*/
+	public static final long DISTANCE_TOLERANCE_SQUARED = (long)DISTANCE_TOLERANCE * DISTANCE_TOLERANCE;
+
+	/**
+	 * Convert a coordinate to fixed point, rounding to the nearest value.
+	 * @param value The coordinate.
+	 * @return The fixed point value.
+	 */
+	public static int toFixed(double value) {
+		return (int)Math.round(value * ONE);
+	}
+	/**
+	 * Convert a fixed point value to a coordinate, which is exact.
+	 * @param fixed The fixed point value.
+	 * @return The coordinate.
+	 */
+	public static double toDouble(int fixed) {
+		return (double)fixed / ONE;
+	}
+	/**
+	 * Get the squared distance between two fixed point positions.
+	 * @param x X-position of the first point.
+	 * @param y Y-position of the first point.
+	 * @param otherX X-position of the second point.
+	 * @param otherY Y-position of the second point.
+	 * @return The squared distance, in fixed point squared.
+	 */
+	public static long distanceSquared(int x, int y, int otherX, int otherY) {
+		long dx = (long)otherX - x;
+		long dy = (long)otherY - y;
+		return dx*dx + dy*dy;
+	}
+	/**
+	 * Check whether two fixed point positions are within DISTANCE_TOLERANCE of each other.
+	 * @param x X-position of the first point.
+	 * @param y Y-position of the first point.
+	 * @param otherX X-position of the second point.
+	 * @param otherY Y-position of the second point.
+	 * @return Whether the points are considered the same position.
+	 */
+	public static boolean isWithinTolerance(int x, int y, int otherX, int otherY) {
+		return distanceSquared(x, y, otherX, otherY) < DISTANCE_TOLERANCE_SQUARED;
+	}
+	/**
+	 * Get the integer square root, the largest value whose square is not above the given one.
+	 * @param value A value of at least 0.
+	 * @return The square root, rounded down.
+	 */
+	public static long sqrt(long value) {
+		//The floating point root is correctly rounded, so it is at most one off the integer root.
+		long root = (long)Math.sqrt((double)value);
+		while (root * root > value) {
+			root--;
+		}
+		while ((root + 1) * (root + 1) <= value) {
+			root++;
+		}
+		return root;
+	}
+	/**
+	 * Move one coordinate a distance along the straight line to a target, without trigonometry.
+	 * The offset is the coordinate's share of the distance, (target - from) * distanceToMove / distanceToTarget,
+	 * rounded towards zero so the step never overshoots.
+	 * @param from The coordinate to move from.
+	 * @param target The coordinate of the target.
+	 * @param distanceToMove The distance to move, at most distanceToTarget.
+	 * @param distanceToTarget The distance from the start to the target, above 0.
+	 * @return The coordinate after the step.
+	 */
+	public static int step(int from, int target, long distanceToMove, long distanceToTarget) {
+		return (int)(from + ((long)target - from) * distanceToMove / distanceToTarget);
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Turns the variable frame time of the game loop into a whole number of simulation ticks of equal length.
+ * Frame time is collected until a full tick has passed, so the world is simulated the same way
+ * whatever the render rate, and rendering can run faster or slower than the simulation.
+ */
+public class FixedTimestep {
+	/**Default length of a tick, about 60 ticks per second.*/
+	public static final int DEFAULT_TICK_MILLIS = 16;
+	/**Default largest number of ticks run in one frame.*/
+	public static final int DEFAULT_MAX_TICKS_PER_FRAME = 5;
+
+	private int tickMillis;
+	private int maxTicksPerFrame;
+	//Frame time not yet simulated, always less than one tick after advance.
+	private int accumulatedMillis = 0;
+	private long ticks = 0;
+	private long droppedMillis = 0;
+
+	/**
+	 * Constructor with the default tick length and catch-up cap.
+	 */
+	public FixedTimestep() {
+		this(DEFAULT_TICK_MILLIS, DEFAULT_MAX_TICKS_PER_FRAME);
+	}
+	/**
+	 * Constructor.
+	 * @param tickMillis The length of one simulation tick (milliseconds).
+	 * @param maxTicksPerFrame The largest number of ticks run in one frame. Time beyond it is dropped,
+	 *        so a slow frame cannot make the next frames even slower.
+	 */
+	public FixedTimestep(int tickMillis, int maxTicksPerFrame) {
+		this.tickMillis = Math.max(tickMillis, 1);
+		this.maxTicksPerFrame = Math.max(maxTicksPerFrame, 1);
+	}
+	/**
+	 * Get the length of a tick, which is the delta every tick is simulated with.
+	 * @return tickMillis The length of one tick (milliseconds).
+	 */
+	public int getTickMillis() {
+		return tickMillis;
+	}
+	/**
+	 * Get the number of ticks run so far.
+	 * @return ticks The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * Get the frame time thrown away because a frame needed more than the largest number of ticks.
+	 * @return droppedMillis The dropped time (milliseconds).
+	 */
+	public long getDroppedMillis() {
+		return droppedMillis;
+	}
+	/**
+	 * Get how far the simulation is into the next tick, for drawing between two ticks.
+	 * @return The part of a tick already passed, from 0 up to but not including 1.
+	 */
+	public double getAlpha() {
+		return (double)accumulatedMillis / tickMillis;
+	}
+	/**
+	 * Add the time of a frame and find how many ticks to simulate for it.
+	 * @param delta Time passed since last frame (milliseconds).
+	 * @return The number of ticks to simulate, each of getTickMillis milliseconds.
+	 */
+	public int advance(int delta) {
+		accumulatedMillis += Math.max(delta, 0);
+		int count = accumulatedMillis / tickMillis;
+		if (count > maxTicksPerFrame) {
+			droppedMillis += (long)(count - maxTicksPerFrame) * tickMillis;
+			count = maxTicksPerFrame;
+		}
+		accumulatedMillis %= tickMillis;
+		ticks += count;
+		return count;
+	}
+}
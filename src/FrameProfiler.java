@@ -0,0 +1,186 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.newdawn.slick.Graphics;
+
+/**
+ * Measures how long each phase of the world update and render takes, and draws the timings over the map.
+ * The last SAMPLE_COUNT times of each phase are kept in a ring buffer, from which the median and
+ * 99th percentile are shown. While disabled no clock is read, so the phase marks cost a field check.
+ */
+public class FrameProfiler {
+	/**Phase advancing the timer wheel of the world.*/
+	public static final int UPDATE_TIMERS = 0;
+	/**Phase updating the resources.*/
+	public static final int UPDATE_RESOURCES = 1;
+	/**Phase dispatching the proximity triggers and updating the buildings.*/
+	public static final int UPDATE_BUILDINGS = 2;
+	/**Phase planning and updating the units.*/
+	public static final int UPDATE_UNITS = 3;
+	/**Phase moving the camera.*/
+	public static final int UPDATE_CAMERA = 4;
+	/**Phase drawing the tiled map.*/
+	public static final int RENDER_MAP = 5;
+	/**Phase finding the visible resources and adding their sprites to the batch.*/
+	public static final int RENDER_RESOURCES = 6;
+	/**Phase finding the visible buildings and adding their sprites to the batch.*/
+	public static final int RENDER_BUILDINGS = 7;
+	/**Phase finding the visible units and adding their sprites to the batch.*/
+	public static final int RENDER_UNITS = 8;
+	/**Phase drawing the sprites collected in the batch.*/
+	public static final int RENDER_SPRITES = 9;
+	/**Phase drawing the menu and the resource amounts.*/
+	public static final int RENDER_HUD = 10;
+	/**Number of times kept for each phase.*/
+	public static final int SAMPLE_COUNT = 256;
+
+	private static final String[] PHASE_NAMES = {"update timers", "update resources", "update buildings", "update units",
+			"update camera", "render map", "render resources", "render buildings", "render units",
+			"render sprites", "render hud"};
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+	//The overlay text is built again at most this often, so drawing it does not show up in the timings.
+	private static final long TEXT_INTERVAL_NANOS = NANOS_PER_SECOND / 2;
+	private static final Position OVERLAY_POSITION = new MapPosition(700, 32);
+
+	private boolean enabled = false;
+	private long[][] samples = new long[PHASE_NAMES.length][SAMPLE_COUNT];
+	private int[] nextSample = new int[PHASE_NAMES.length];
+	private int[] sampleCount = new int[PHASE_NAMES.length];
+	//Copy of the samples of one phase, sorted to find the percentiles.
+	private long[] sorted = new long[SAMPLE_COUNT];
+	//Bytes allocated by the game thread, read through the JDK's thread bean where it is supported.
+	private com.sun.management.ThreadMXBean allocationBean = null;
+	private long lastAllocatedBytes;
+	private long lastAllocationNanos;
+	private double allocationRate = Double.NaN;
+	private String text = "";
+	private long textNanos = 0;
+	private StringBuilder textBuilder = new StringBuilder();
+
+	/**
+	 * Constructor. The profiler starts disabled.
+	 */
+	public FrameProfiler() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+			allocationBean = (com.sun.management.ThreadMXBean)bean;
+	}
+	/**
+	 * Check whether the phases are being timed.
+	 * @return enabled Whether the profiler is enabled.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	/**
+	 * Start or stop timing the phases. The times collected before are dropped.
+	 * @param enabled Whether the profiler is enabled.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		Arrays.fill(nextSample, 0);
+		Arrays.fill(sampleCount, 0);
+		allocationRate = Double.NaN;
+		text = "";
+		textNanos = 0;
+		if (enabled && allocationBean != null) {
+			allocationBean.setThreadAllocatedMemoryEnabled(true);
+			lastAllocatedBytes = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			lastAllocationNanos = System.nanoTime();
+		}
+	}
+	/**
+	 * Get the time the next phase starts at.
+	 * @return The current time in nanoseconds, or 0 when disabled.
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+	/**
+	 * Record the time of a phase which started at a given time, and start the next phase.
+	 * @param phase One of the phase constants.
+	 * @param start The time the phase started, returned by start or the previous lap.
+	 * @return The time the next phase starts at, or 0 when disabled.
+	 */
+	public long lap(int phase, long start) {
+		if (!enabled)
+			return 0;
+		long now = System.nanoTime();
+		samples[phase][nextSample[phase]] = now - start;
+		nextSample[phase] = (nextSample[phase] + 1) % SAMPLE_COUNT;
+		sampleCount[phase] = Math.min(sampleCount[phase] + 1, SAMPLE_COUNT);
+		return now;
+	}
+	/**
+	 * Get a percentile of the recent times of a phase.
+	 * @param phase One of the phase constants.
+	 * @param percentile The percentile, from 0 to 100.
+	 * @return The time in nanoseconds, 0 when the phase has not been timed.
+	 */
+	public long getPercentile(int phase, int percentile) {
+		int count = sampleCount[phase];
+		if (count == 0)
+			return 0;
+		System.arraycopy(samples[phase], 0, sorted, 0, count);
+		Arrays.sort(sorted, 0, count);
+		return sorted[Math.min(count * percentile / 100, count - 1)];
+	}
+	/**
+	 * Get the rate the game thread allocated memory at, measured over the last half second.
+	 * @return The allocation rate in bytes per second, NaN when it cannot be measured.
+	 */
+	public double getAllocationRate() {
+		return allocationRate;
+	}
+	/**
+	 * Draw the timings of every phase, the object counts and the allocation rate, when enabled.
+	 * @param g The Slick graphics object, used for drawing.
+	 * @param world The world whose objects are counted.
+	 */
+	public void render(Graphics g, World world) {
+		if (!enabled)
+			return;
+		long now = System.nanoTime();
+		if (now - textNanos >= TEXT_INTERVAL_NANOS) {
+			measureAllocation(now);
+			text = buildText(world);
+			textNanos = now;
+		}
+		g.drawString(text, (float)OVERLAY_POSITION.getX(), (float)OVERLAY_POSITION.getY());
+	}
+	private void measureAllocation(long now) {
+		if (allocationBean == null)
+			return;
+		long allocatedBytes = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		if (now > lastAllocationNanos)
+			allocationRate = (double)(allocatedBytes - lastAllocatedBytes) * NANOS_PER_SECOND / (now - lastAllocationNanos);
+		lastAllocatedBytes = allocatedBytes;
+		lastAllocationNanos = now;
+	}
+	private String buildText(World world) {
+		textBuilder.setLength(0);
+		textBuilder.append("phase  p50 / p99 ms");
+		for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+			textBuilder.append('\n').append(PHASE_NAMES[phase]).append("  ");
+			appendMillis(getPercentile(phase, 50));
+			textBuilder.append(" / ");
+			appendMillis(getPercentile(phase, 99));
+		}
+		textBuilder.append("\nunits ").append(world.getUnits().size())
+				.append("  buildings ").append(world.getBuildings().size())
+				.append("  resources ").append(world.getResources().size());
+		textBuilder.append("\nallocation ");
+		if (Double.isNaN(allocationRate))
+			textBuilder.append("n/a");
+		else
+			textBuilder.append(Math.round(allocationRate / BYTES_PER_MEGABYTE * 10) / 10.0).append(" MB/s");
+		return textBuilder.toString();
+	}
+	//Append a time in milliseconds with two decimals.
+	private void appendMillis(long nanos) {
+		textBuilder.append(Math.round(nanos / NANOS_PER_MILLI * 100) / 100.0);
+	}
+}
@@ -1,6 +1,7 @@
+import java.io.IOException;
+
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
-import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
 
 /**
@@ -8,11 +9,21 @@ import org.newdawn.slick.SlickException;
  * Handles update and render of the game objects.
  */
 public abstract class GameObject {
-	private Image image;
+	/**List index of an object which is not in a world.*/
+	public static final int NOT_LISTED = -1;
+	//The image is taken from the image cache on first render, so objects can be simulated without a display.
+	private Image image = null;
+	private String imagePath;
 	private Position pos;
 	private World world;
-	private Camera camera;
-	private static final Position MENU_POSITION = new Position(32, 100);
+	//The spatial grid which stores this object, and where in the grid it is stored.
+	private SpatialGrid<?> grid = null;
+	private int gridCell = SpatialGrid.NOT_INDEXED;
+	private int gridSlot = SpatialGrid.NOT_INDEXED;
+	//The handle of this object in the entity registry of its world, and where it is in the world's list of its kind.
+	private long handle = EntityRegistry.NO_HANDLE;
+	private int listIndex = NOT_LISTED;
+	private static final Position MENU_POSITION = new MapPosition(32, 100);
 	
 	/**
 	 * Initialize the gameObject with world, position and image
@@ -21,21 +32,35 @@ public abstract class GameObject {
 	 * @param imagePath The image path which store the iamge of the object.
 	 */
 	public GameObject(World world, Position pos, String imagePath) {
-		try {
-			this.world = world;
-			this.pos = pos;
-			camera = world.getCamera();
-			this.image = new Image(imagePath);
-		} catch (SlickException e) {
-			e.printStackTrace();
+		this.world = world;
+		//Each object owns its position, as moving objects change it in place.
+		this.pos = pos == null ? null : new MapPosition(pos);
+		this.imagePath = imagePath;
+	}
+	/**
+	 * Set the image of a game object. The new image is loaded when the object is next rendered.
+	 * @param imagePath The image path of the gameObject
+	 */
+	public void setImagePath(String imagePath) {
+		releaseImage();
+		this.imagePath = imagePath;
+	}
+	/**
+	 * Give the image back to the image cache, for example when the object is removed from the world.
+	 * It is taken again if the object is rendered later.
+	 */
+	public void releaseImage() {
+		if (image != null) {
+			ImageCache.release(imagePath);
+			image = null;
 		}
 	}
 	/**
-	 * Set the image of a game object.
-	 * @param image The image of the gameObject
+	 * Get the image path of a game object.
+	 * @return imagePath The image path of the gameObject
 	 */
-	public void setImage(Image image) {
-		this.image = image;
+	public String getImagePath() {
+		return imagePath;
 	}
 	/**
 	 * Get the map position of this object
@@ -44,21 +69,120 @@ public abstract class GameObject {
 	public Position getPos() {
 		return pos;
 	}
+	/**
+	 * Keep the position of this object in another position object, like a view of an entity store.
+	 * Must be called before the object is added to a spatial grid.
+	 * @param storage The position object, which is moved to the current position.
+	 */
+	protected void setPositionStorage(Position storage) {
+		storage.set(pos.getX(), pos.getY());
+		pos = storage;
+	}
 	/**
 	 * Set the gameObject to a given position.
 	 * @param pos The expecting position of the gameObject
 	 */
 	public void setPos(Position pos) {
-		this.pos = pos;
+		setPos(pos.getX(), pos.getY());
+	}
+	/**
+	 * Move the gameObject to a given point, changing its position in place.
+	 * @param x The expecting x-position of the gameObject
+	 * @param y The expecting y-position of the gameObject
+	 */
+	public void setPos(double x, double y) {
+		if (pos == null)
+			pos = new MapPosition(x, y);
+		else
+			pos.set(x, y);
+		if (grid != null)
+			grid.update(this);
+	}
+	/**
+	 * Get the spatial grid which stores this object.
+	 * @return grid The spatial grid, or null if the object is not stored in one.
+	 */
+	public SpatialGrid<?> getGrid() {
+		return grid;
+	}
+	/**
+	 * Set the spatial grid which stores this object. Only called by the grid.
+	 * @param grid The spatial grid storing this object.
+	 */
+	public void setGrid(SpatialGrid<?> grid) {
+		this.grid = grid;
+	}
+	/**
+	 * Get the index of the grid cell which stores this object.
+	 * @return gridCell The index of the cell.
+	 */
+	public int getGridCell() {
+		return gridCell;
+	}
+	/**
+	 * Set the index of the grid cell which stores this object. Only called by the grid.
+	 * @param gridCell The index of the cell.
+	 */
+	public void setGridCell(int gridCell) {
+		this.gridCell = gridCell;
+	}
+	/**
+	 * Get the slot inside the grid cell which stores this object.
+	 * @return gridSlot The slot inside the cell.
+	 */
+	public int getGridSlot() {
+		return gridSlot;
+	}
+	/**
+	 * Set the slot inside the grid cell which stores this object. Only called by the grid.
+	 * @param gridSlot The slot inside the cell.
+	 */
+	public void setGridSlot(int gridSlot) {
+		this.gridSlot = gridSlot;
+	}
+	/**
+	 * Get the generational handle of this object, which other objects keep instead of a reference to it.
+	 * @return handle The handle, or EntityRegistry.NO_HANDLE if the object is not in a world.
+	 */
+	public long getHandle() {
+		return handle;
+	}
+	/**
+	 * Set the generational handle of this object. Only called by the world.
+	 * @param handle The handle given by the entity registry.
+	 */
+	public void setHandle(long handle) {
+		this.handle = handle;
+	}
+	/**
+	 * Get the index of this object in the world's list of its kind.
+	 * @return listIndex The index, or NOT_LISTED if the object is not in a world.
+	 */
+	public int getListIndex() {
+		return listIndex;
+	}
+	/**
+	 * Set the index of this object in the world's list of its kind. Only called by the world.
+	 * @param listIndex The index in the list.
+	 */
+	public void setListIndex(int listIndex) {
+		this.listIndex = listIndex;
 	}
 	
 	/**
-	 * Get the screen position of the gameObject.
-	 * @return The Position on the screen.
+	 * Get the x-position of the gameObject on the screen, without creating a position.
+	 * @return The x-position on the screen.
 	 */
-	public Position getScreenPos() {
-		return camera.mapPosToScreenPos(pos);
-	}	
+	public float getScreenX() {
+		return (float)getCamera().mapXToScreenX(pos.getX());
+	}
+	/**
+	 * Get the y-position of the gameObject on the screen, without creating a position.
+	 * @return The y-position on the screen.
+	 */
+	public float getScreenY() {
+		return (float)getCamera().mapYToScreenY(pos.getY());
+	}
 	/**
 	 * Get the world of the game object.
 	 * @return world The world which the gameObject is in.
@@ -68,26 +192,54 @@ public abstract class GameObject {
 	}
 	/**
 	 * Get the camera of the game object.
-	 * @return camera The camera which the gameObject is in.
+	 * @return The camera of the world which the gameObject is in.
 	 */
 	public Camera getCamera() {
-		return camera;
+		return world.getCamera();
 	}	
 	/**
 	 * Update the game object for a frame.
-	 * @param input The input of the player
 	 * @param delta Time passed since last frame (milliseconds).
-	 * @param mouseButton Which mouse button did the player click 
-	 * @param clickPos The position of the click.
 	 */
-	public abstract void update(Input input, int delta, int mouseButton, Position clickPos);
+	public abstract void update(int delta);
 	
-	/**Render the gameObjectr on screen, so it reflects the current game state.*/
-	public void render() {
+	/**
+	 * Write the state of the object which a world snapshot needs besides its type and position.
+	 * Overridden by every class with state of its own, which first writes the state of its parent.
+	 * @param out The snapshot being written.
+	 * @throws IOException If the snapshot cannot be written.
+	 */
+	public void writeState(SnapshotWriter out) throws IOException {
+		
+	}
+	/**
+	 * Read back the state written by writeState, into an object just created at its saved position.
+	 * @param in The snapshot being read.
+	 */
+	public void readState(SnapshotReader in) {
+		
+	}
+	/**
+	 * Get the sprite layer the object is drawn on.
+	 * @return One of the SpriteBatch layer constants.
+	 */
+	public abstract int getRenderLayer();
+	/**
+	 * Render the gameObjectr on screen, so it reflects the current game state.
+	 * @param batch The sprite batch collecting the sprites of the frame.
+	 */
+	public void render(SpriteBatch batch) {
 		if (pos == null)
 			return;
-		else
-			image.drawCentered((float)(getScreenPos().getX()), (float)(getScreenPos().getY()));
+		if (image == null) {
+			try {
+				image = ImageCache.acquire(imagePath);
+			} catch (SlickException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+		batch.draw(image, getScreenX(), getScreenY(), getRenderLayer());
 	}
 	/**
 	 * Render the menu on screen.
@@ -95,15 +247,8 @@ public abstract class GameObject {
 	 * @param menuItems The item list that the gameObject can create
 	 */
 	public void renderMenu(Graphics g, String[] menuItems) {
-		//The element for 0 index of all menuitem is empty to be related to the input, so the method starts from 1.
-		int i = 1;
-		String menu = String.valueOf(i) + "- Create " + menuItems[i];
-		i++;
-		while (i < menuItems.length) {
-			menu += "\n" + String.valueOf(i) + "- Create " + menuItems[i];
-			i++;
-		}
-    	g.drawString(menu, (float)MENU_POSITION.getX(), (float)MENU_POSITION.getY());
+		//The menu text is cached by the HUD, so it is not built again every frame.
+    	g.drawString(world.getHud().getMenuText(menuItems), (float)MENU_POSITION.getX(), (float)MENU_POSITION.getY());
 	}
 	/**
 	 * Overload method for the above one.
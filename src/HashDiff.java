@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Compares two hash streams written by HashRecorder, like one from a sequential replay and one from
+ * a parallel replay of the same recording, and reports the first tick where the worlds differ and
+ * the first object that differs in it.
+ */
+public class HashDiff {
+	private static final int FIRST_PATH_ARG_INDEX = 0;
+	private static final int SECOND_PATH_ARG_INDEX = 1;
+	private static final int SLOT_BITS = 32;
+	private static final long SLOT_MASK = 0xFFFFFFFFL;
+	private static final String[] KIND_NAMES = {"object", "resource", "building", "unit"};
+
+	private String path;
+	private SnapshotReader in;
+	private long ticks = 0;
+	private long checksum;
+	private int metal;
+	private int unobtainium;
+	private int engineerCapacity;
+	//The last recorded hash and kind of every object in the world, by handle.
+	private Map<Long, Long> hashes = new HashMap<Long, Long>();
+	private Map<Long, Integer> kinds = new HashMap<Long, Integer>();
+
+	/**
+	 * Constructor. Open a hash stream.
+	 * @param path The path of the hash stream file.
+	 * @throws SlickException If the file cannot be read or is not a hash stream of this version.
+	 */
+	public HashDiff(String path) throws SlickException {
+		this.path = path;
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			in = new SnapshotReader(buffer);
+			if (in.getInt() != HashRecorder.MAGIC)
+				throw new SlickException(path + " is not a hash stream");
+			int version = in.getInt();
+			if (version != HashRecorder.VERSION)
+				throw new SlickException("Unsupported hash stream version " + version + " in " + path);
+		} catch (IOException | RuntimeException e) {
+			throw new SlickException("Failed to read hash stream " + path, e);
+		}
+	}
+	/**
+	 * Read the next tick of the stream, updating the hashes of the objects it changed.
+	 * @return Whether a tick was read, false at the end of the stream.
+	 * @throws SlickException If the stream is damaged.
+	 */
+	public boolean step() throws SlickException {
+		if (!in.hasRemaining())
+			return false;
+		try {
+			checksum = in.getLong();
+			metal = in.getInt();
+			unobtainium = in.getInt();
+			engineerCapacity = in.getInt();
+			int changedCount = in.getInt();
+			for (int i = 0; i < changedCount; i++) {
+				long handle = in.getLong();
+				kinds.put(handle, in.getByte());
+				hashes.put(handle, in.getLong());
+			}
+			int removedCount = in.getInt();
+			for (int i = 0; i < removedCount; i++) {
+				long handle = in.getLong();
+				kinds.remove(handle);
+				hashes.remove(handle);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new SlickException("Hash stream " + path + " ends in the middle of tick " + (ticks + 1), e);
+		}
+		ticks++;
+		return true;
+	}
+	/**
+	 * Check that the objects read so far add up to the recorded checksum, so a stream which was
+	 * written by a broken recorder or damaged on disk is not blamed on the simulation.
+	 * @return Whether the checksum of the last tick matches its objects.
+	 */
+	public boolean isConsistent() {
+		long objectSum = 0;
+		for (Map.Entry<Long, Long> object : hashes.entrySet()) {
+			objectSum += HashRecorder.entry(kinds.get(object.getKey()), object.getValue());
+		}
+		return HashRecorder.checksum(metal, unobtainium, engineerCapacity, objectSum) == checksum;
+	}
+	/**
+	 * Get the number of ticks read so far.
+	 * @return ticks The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * Get the checksum recorded for the last tick read.
+	 * @return checksum The checksum.
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Describe how the last ticks of two streams differ: the resource totals, and the objects of each stream
+	 * without an object of the same kind and hash in the other one. Objects are matched by their state rather than
+	 * by their handles, which differ when objects were added or removed in another order. The first unmatched
+	 * object of each stream, in handle order, is named by its handle.
+	 * @param first The first stream.
+	 * @param second The second stream.
+	 * @return A line for every difference found.
+	 */
+	public static String describeDifference(HashDiff first, HashDiff second) {
+		StringBuilder result = new StringBuilder();
+		describeTotal(result, "metal", first.metal, second.metal);
+		describeTotal(result, "unobtainium", first.unobtainium, second.unobtainium);
+		describeTotal(result, "engineer capacity", first.engineerCapacity, second.engineerCapacity);
+		//Count the objects of each state, then take away the matching ones of the other stream.
+		Map<Long, Integer> firstUnmatched = first.countEntries();
+		Map<Long, Integer> secondUnmatched = second.countEntries();
+		for (Map.Entry<Long, Integer> state : first.countEntries().entrySet()) {
+			Integer secondCount = secondUnmatched.get(state.getKey());
+			if (secondCount == null)
+				continue;
+			int matched = Math.min(state.getValue(), secondCount);
+			firstUnmatched.put(state.getKey(), state.getValue() - matched);
+			secondUnmatched.put(state.getKey(), secondCount - matched);
+		}
+		first.describeUnmatched(result, firstUnmatched);
+		second.describeUnmatched(result, secondUnmatched);
+		return result.toString();
+	}
+	//Count the objects of every entry in the checksum.
+	private Map<Long, Integer> countEntries() {
+		Map<Long, Integer> counts = new HashMap<Long, Integer>();
+		for (Map.Entry<Long, Long> object : hashes.entrySet()) {
+			counts.merge(HashRecorder.entry(kinds.get(object.getKey()), object.getValue()), 1, Integer::sum);
+		}
+		return counts;
+	}
+	//Name the first object, in handle order, left without a match in the other stream, and count them all.
+	private void describeUnmatched(StringBuilder result, Map<Long, Integer> unmatched) {
+		int unmatchedObjects = 0;
+		for (long handle : new TreeSet<Long>(hashes.keySet())) {
+			long entry = HashRecorder.entry(kinds.get(handle), hashes.get(handle));
+			int count = unmatched.getOrDefault(entry, 0);
+			if (count == 0)
+				continue;
+			unmatched.put(entry, count - 1);
+			if (unmatchedObjects == 0)
+				result.append("  first different object in ").append(path).append(": ").append(KIND_NAMES[kinds.get(handle)])
+						.append(" in slot ").append(handle & SLOT_MASK)
+						.append(", generation ").append(handle >>> SLOT_BITS).append('\n');
+			unmatchedObjects++;
+		}
+		result.append("  ").append(unmatchedObjects).append(" of ").append(hashes.size())
+				.append(" objects in ").append(path).append(" have no match\n");
+	}
+	private static void describeTotal(StringBuilder result, String name, int first, int second) {
+		if (first != second)
+			result.append("  ").append(name).append(": ").append(first).append(" vs ").append(second).append('\n');
+	}
+
+	/** Start-up method. Compares two hash streams tick by tick and reports the first difference.
+	 * @param args The paths of the two hash streams.
+	 */
+	public static void main(String[] args) throws SlickException {
+		if (args.length <= SECOND_PATH_ARG_INDEX) {
+			System.out.println("Usage: HashDiff <hash stream> <hash stream>");
+			return;
+		}
+		HashDiff first = new HashDiff(args[FIRST_PATH_ARG_INDEX]);
+		HashDiff second = new HashDiff(args[SECOND_PATH_ARG_INDEX]);
+		while (true) {
+			boolean firstStepped = first.step();
+			boolean secondStepped = second.step();
+			if (!firstStepped || !secondStepped) {
+				if (firstStepped || secondStepped)
+					System.out.println("Streams match for " + Math.min(first.getTicks(), second.getTicks())
+							+ " ticks, then " + (firstStepped ? first.path : second.path) + " continues");
+				else
+					System.out.println("Streams match for all " + first.getTicks() + " ticks");
+				return;
+			}
+			if (first.getChecksum() != second.getChecksum()) {
+				System.out.println("Streams differ after tick " + first.getTicks());
+				System.out.print(describeDifference(first, second));
+				if (!first.isConsistent() || !second.isConsistent())
+					System.out.println("  warning: a checksum does not match the objects recorded with it");
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Writes a checksum of the world after every tick into a hash stream, which HashDiff compares with another one.
+ * The checksum is kept up to date incrementally: each object's hash is combined with its kind and added to
+ * a running sum, and when the object changes only the difference is applied. The sum only depends on the state
+ * of the objects, not on the order of the lists or on the handles, which come from the order objects were added
+ * and removed in. So a reloaded snapshot, or a reordered update path which reaches the same state, gives the same checksum.
+ * Along with the checksum, each tick records the resource totals and the objects whose hash changed or which were
+ * removed, labelled by their handles, so a diff can name the first object that differs.
+ * Nothing is allocated after the first ticks.
+ */
+public class HashRecorder {
+	/**"SBHS" at the start of every hash stream.*/
+	public static final int MAGIC = 0x53424853;
+	/**Version of the file layout, raised whenever the layout changes.*/
+	public static final int VERSION = 2;
+	/**Kind a resource is recorded as.*/
+	public static final int KIND_RESOURCE = 1;
+	/**Kind a building is recorded as.*/
+	public static final int KIND_BUILDING = 2;
+	/**Kind a unit is recorded as.*/
+	public static final int KIND_UNIT = 3;
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final long SLOT_MASK = 0xFFFFFFFFL;
+
+	private String path;
+	private FileChannel channel;
+	private SnapshotWriter out;
+	private long ticks = 0;
+	//Sum of the combined kind and hash of every object recorded in the last tick.
+	private long objectSum = 0;
+	private long checksum = 0;
+	//Per registry slot: the handle, kind and hash recorded for it, and the tick it was last seen in.
+	private long[] handles = new long[INITIAL_CAPACITY];
+	private int[] kinds = new int[INITIAL_CAPACITY];
+	private long[] hashes = new long[INITIAL_CAPACITY];
+	private long[] seenTicks = new long[INITIAL_CAPACITY];
+	private int slotCount = 0;
+	//Objects changed and removed in the current tick, written after the checksum.
+	private long[] changedHandles = new long[INITIAL_CAPACITY];
+	private long[] changedHashes = new long[INITIAL_CAPACITY];
+	private int[] changedKinds = new int[INITIAL_CAPACITY];
+	private int changedCount = 0;
+	private long[] removedHandles = new long[INITIAL_CAPACITY];
+	private int removedCount = 0;
+
+	/**
+	 * Constructor. Only keep the checksum up to date, without writing a hash stream.
+	 */
+	public HashRecorder() {
+		for (int i = 0; i < handles.length; i++) {
+			handles[i] = EntityRegistry.NO_HANDLE;
+		}
+	}
+	/**
+	 * Constructor. Create the hash stream file, replacing it if it exists.
+	 * @param path The path of the hash stream file.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public HashRecorder(String path) throws SlickException {
+		this();
+		this.path = path;
+		try {
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			out = new SnapshotWriter(channel);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+		} catch (IOException e) {
+			close();
+			throw new SlickException("Failed to write hash stream " + path, e);
+		}
+	}
+	/**
+	 * Get the number of ticks recorded so far.
+	 * @return ticks The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * Get the checksum of the world after the last recorded tick.
+	 * @return The checksum.
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+	/**
+	 * Update the checksum after a tick and write it with the objects that changed, if there is a stream. Called by the world.
+	 * @param world The world, after it has been updated for the tick.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public void recordTick(World world) throws SlickException {
+		ticks++;
+		changedCount = 0;
+		removedCount = 0;
+		List<Resource> resources = world.getResources();
+		for (int i = 0; i < resources.size(); i++) {
+			Resource res = resources.get(i);
+			see(res.getHandle(), KIND_RESOURCE, WorldHash.ofResource(res));
+		}
+		List<Building> buildings = world.getBuildings();
+		for (int i = 0; i < buildings.size(); i++) {
+			Building building = buildings.get(i);
+			see(building.getHandle(), KIND_BUILDING, WorldHash.ofBuilding(building));
+		}
+		List<Unit> units = world.getUnits();
+		for (int i = 0; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			see(unit.getHandle(), KIND_UNIT, WorldHash.ofUnit(unit));
+		}
+		//Slots not seen in this tick held objects which have been removed since the last one.
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (handles[slot] != EntityRegistry.NO_HANDLE && seenTicks[slot] != ticks)
+				forget(slot);
+		}
+		checksum = checksum(world.getMetalAmount(), world.getUnobtainiumAmount(), world.getEngineerCapacity(), objectSum);
+		if (out == null)
+			return;
+		try {
+			out.putLong(checksum);
+			out.putInt(world.getMetalAmount());
+			out.putInt(world.getUnobtainiumAmount());
+			out.putInt(world.getEngineerCapacity());
+			out.putInt(changedCount);
+			for (int i = 0; i < changedCount; i++) {
+				out.putLong(changedHandles[i]);
+				out.putByte(changedKinds[i]);
+				out.putLong(changedHashes[i]);
+			}
+			out.putInt(removedCount);
+			for (int i = 0; i < removedCount; i++) {
+				out.putLong(removedHandles[i]);
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to write hash stream " + path, e);
+		}
+	}
+	/**
+	 * Write the ticks still buffered and close the file.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public void close() throws SlickException {
+		if (channel == null)
+			return;
+		try {
+			if (out != null)
+				out.flush();
+			channel.close();
+		} catch (IOException e) {
+			throw new SlickException("Failed to write hash stream " + path, e);
+		} finally {
+			channel = null;
+		}
+	}
+	/**
+	 * Combine the resource totals with the sum of the objects into the checksum of a tick.
+	 * Also used by HashDiff to check a stream it has read back.
+	 * @param metal The metal amount.
+	 * @param unobtainium The unobtainium amount.
+	 * @param engineerCapacity The engineer capacity.
+	 * @param objectSum The sum of the entries of all objects.
+	 * @return The checksum.
+	 */
+	public static long checksum(int metal, int unobtainium, int engineerCapacity, long objectSum) {
+		long hash = WorldHash.mix(0, metal);
+		hash = WorldHash.mix(hash, unobtainium);
+		hash = WorldHash.mix(hash, engineerCapacity);
+		return WorldHash.mix(hash, objectSum);
+	}
+	/**
+	 * Get what an object adds to the object sum of the checksum.
+	 * @param kind The kind the object is recorded as.
+	 * @param hash The hash of the object.
+	 * @return The entry of the object.
+	 */
+	public static long entry(int kind, long hash) {
+		return WorldHash.mix(kind, hash);
+	}
+	//Record the hash of an object in the current tick, and note it if it differs from the last tick.
+	private void see(long handle, int kind, long hash) {
+		int slot = (int)(handle & SLOT_MASK);
+		if (slot >= handles.length)
+			growSlots(slot + 1);
+		if (slot >= slotCount)
+			slotCount = slot + 1;
+		seenTicks[slot] = ticks;
+		if (handles[slot] == handle && hashes[slot] == hash)
+			return;
+		//The slot still holds an object removed since the last tick, whose handle has an older generation.
+		if (handles[slot] != EntityRegistry.NO_HANDLE && handles[slot] != handle)
+			forget(slot);
+		if (handles[slot] == handle)
+			objectSum -= entry(kinds[slot], hashes[slot]);
+		handles[slot] = handle;
+		kinds[slot] = kind;
+		hashes[slot] = hash;
+		objectSum += entry(kind, hash);
+		if (changedCount == changedHandles.length)
+			growChanged();
+		changedHandles[changedCount] = handle;
+		changedKinds[changedCount] = kind;
+		changedHashes[changedCount] = hash;
+		changedCount++;
+	}
+	private void forget(int slot) {
+		objectSum -= entry(kinds[slot], hashes[slot]);
+		if (removedCount == removedHandles.length) {
+			long[] newRemoved = new long[removedHandles.length * 2];
+			System.arraycopy(removedHandles, 0, newRemoved, 0, removedCount);
+			removedHandles = newRemoved;
+		}
+		removedHandles[removedCount++] = handles[slot];
+		handles[slot] = EntityRegistry.NO_HANDLE;
+	}
+	private void growSlots(int minimum) {
+		int capacity = handles.length;
+		while (capacity < minimum) {
+			capacity *= 2;
+		}
+		long[] newHandles = new long[capacity];
+		int[] newKinds = new int[capacity];
+		long[] newHashes = new long[capacity];
+		long[] newSeenTicks = new long[capacity];
+		System.arraycopy(handles, 0, newHandles, 0, handles.length);
+		System.arraycopy(kinds, 0, newKinds, 0, kinds.length);
+		System.arraycopy(hashes, 0, newHashes, 0, hashes.length);
+		System.arraycopy(seenTicks, 0, newSeenTicks, 0, seenTicks.length);
+		for (int i = handles.length; i < capacity; i++) {
+			newHandles[i] = EntityRegistry.NO_HANDLE;
+		}
+		handles = newHandles;
+		kinds = newKinds;
+		hashes = newHashes;
+		seenTicks = newSeenTicks;
+	}
+	private void growChanged() {
+		int capacity = changedHandles.length * 2;
+		long[] newHandles = new long[capacity];
+		long[] newHashes = new long[capacity];
+		int[] newKinds = new int[capacity];
+		System.arraycopy(changedHandles, 0, newHandles, 0, changedCount);
+		System.arraycopy(changedHashes, 0, newHashes, 0, changedCount);
+		System.arraycopy(changedKinds, 0, newKinds, 0, changedCount);
+		changedHandles = newHandles;
+		changedHashes = newHashes;
+		changedKinds = newKinds;
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ * Text shown on top of the map: the resource amounts and the menu of the selected object.
+ * The strings are only built again when what they show changes, not every frame.
+ */
+public class Hud {
+	private static final String RESOURCE_FORMAT = "Metal: %d\nUnobtainium: %d";
+
+	private String resourceText = null;
+	private int shownMetal;
+	private int shownUnobtainium;
+	private String menuText = null;
+	private String[] shownMenuItems = null;
+
+	/**
+	 * Get the text showing the resource amounts.
+	 * @param metalAmount The current metal amount.
+	 * @param unobtainiumAmount The current unobtainium amount.
+	 * @return The text, the same string as last time if the amounts are unchanged.
+	 */
+	public String getResourceText(int metalAmount, int unobtainiumAmount) {
+		if (resourceText == null || metalAmount != shownMetal || unobtainiumAmount != shownUnobtainium) {
+			resourceText = String.format(RESOURCE_FORMAT, metalAmount, unobtainiumAmount);
+			shownMetal = metalAmount;
+			shownUnobtainium = unobtainiumAmount;
+		}
+		return resourceText;
+	}
+	/**
+	 * Get the text of a menu, one "- Create" line per item.
+	 * The menus are constant arrays of each class, so the text is kept until a different array is shown.
+	 * @param menuItems The items which can be created. The element at index 0 is not shown.
+	 * @return The text, the same string as last time for the same menu.
+	 */
+	public String getMenuText(String[] menuItems) {
+		if (menuItems != shownMenuItems) {
+			//The element for 0 index of all menuitem is empty to be related to the input, so the menu starts from 1.
+			StringBuilder menu = new StringBuilder();
+			for (int i = 1; i < menuItems.length; i++) {
+				if (i > 1)
+					menu.append('\n');
+				menu.append(i).append("- Create ").append(menuItems[i]);
+			}
+			menuText = menu.toString();
+			shownMenuItems = menuItems;
+		}
+		return menuText;
+	}
+}
@@ -0,0 +1,105 @@
+import java.util.HashMap;
+import java.util.Map;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Process-wide cache of images keyed by asset path, so game objects with the same image share one texture.
+ * Counts the references to each image. Images without references stay loaded until they are evicted.
+ */
+public class ImageCache {
+	private static Map<String, CachedImage> images = new HashMap<String, CachedImage>();
+
+	//An image with the number of objects currently using it.
+	private static class CachedImage {
+		private Image image;
+		private int references = 0;
+
+		private CachedImage(Image image) {
+			this.image = image;
+		}
+	}
+
+	/**
+	 * Get the image of an asset path, loading it on first use, and count one more reference to it.
+	 * @param imagePath The path of the image.
+	 * @return The shared image.
+	 * @throws SlickException If the image cannot be loaded.
+	 */
+	public static Image acquire(String imagePath) throws SlickException {
+		CachedImage cached = images.get(imagePath);
+		if (cached == null) {
+			cached = new CachedImage(new Image(imagePath));
+			images.put(imagePath, cached);
+		}
+		cached.references++;
+		return cached.image;
+	}
+	/**
+	 * Count one reference less to the image of an asset path.
+	 * @param imagePath The path of the image.
+	 */
+	public static void release(String imagePath) {
+		CachedImage cached = images.get(imagePath);
+		if (cached != null && cached.references > 0)
+			cached.references--;
+	}
+	/**
+	 * Get the number of references to the image of an asset path.
+	 * @param imagePath The path of the image.
+	 * @return The number of references, 0 if the image is not loaded.
+	 */
+	public static int getReferences(String imagePath) {
+		CachedImage cached = images.get(imagePath);
+		return cached == null ? 0 : cached.references;
+	}
+	/**
+	 * Get the number of loaded images.
+	 * @return The number of images in the cache.
+	 */
+	public static int size() {
+		return images.size();
+	}
+	/**
+	 * Destroy the image of an asset path if nothing references it any more.
+	 * @param imagePath The path of the image.
+	 * @return Whether the image was evicted.
+	 */
+	public static boolean evict(String imagePath) {
+		CachedImage cached = images.get(imagePath);
+		if (cached == null || cached.references > 0)
+			return false;
+		images.remove(imagePath);
+		destroy(cached.image);
+		return true;
+	}
+	/**
+	 * Destroy all the images which nothing references any more.
+	 * @return The number of evicted images.
+	 */
+	public static int evictUnused() {
+		int evicted = 0;
+		for (String imagePath: images.keySet().toArray(new String[0])) {
+			if (evict(imagePath))
+				evicted++;
+		}
+		return evicted;
+	}
+	/**
+	 * Destroy all the images, whether they are referenced or not. Used when the display is closed.
+	 */
+	public static void clear() {
+		for (CachedImage cached: images.values()) {
+			destroy(cached.image);
+		}
+		images.clear();
+	}
+	private static void destroy(Image image) {
+		try {
+			image.destroy();
+		} catch (SlickException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Records a session into a compact binary file, which Replay runs again headless.
+ * The file starts with a snapshot of the world when recording started, followed by every tick the world
+ * is updated for: its frame time and the commands applied at its start. After every hashInterval ticks
+ * the world hash is written as well, so a replay can check that it reached the same state.
+ */
+public class InputRecorder {
+	/**"SBRC" at the start of every recording.*/
+	public static final int MAGIC = 0x53425243;
+	/**Version of the file layout, raised whenever the layout changes.*/
+	public static final int VERSION = 1;
+	/**Ticks between two hashes when no interval is given, a second at the default tick length.*/
+	public static final int DEFAULT_HASH_INTERVAL = 60;
+
+	//The command count of a tick is written as one byte.
+	private static final int MAX_COMMANDS_PER_TICK = 255;
+
+	private String path;
+	private FileChannel channel;
+	private SnapshotWriter out;
+	private int hashInterval;
+	private long ticks = 0;
+
+	/**
+	 * Constructor. Create the recording file, replacing it if it exists, and write the current state of the world.
+	 * @param world The world being recorded.
+	 * @param path The path of the recording file.
+	 * @param hashInterval The number of ticks between two hashes.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public InputRecorder(World world, String path, int hashInterval) throws SlickException {
+		this.path = path;
+		this.hashInterval = hashInterval;
+		try {
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			out = new SnapshotWriter(channel);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(hashInterval);
+			WorldSnapshot.write(world, out);
+		} catch (IOException e) {
+			close();
+			throw new SlickException("Failed to write recording " + path, e);
+		}
+	}
+	/**
+	 * Get the number of ticks recorded so far.
+	 * @return ticks The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * Write a tick before the world is updated for it. Called by the world.
+	 * @param commands The commands applied at the start of the tick.
+	 * @param delta Time passed in the tick (milliseconds).
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public void recordTick(CommandBuffer commands, int delta) throws SlickException {
+		if (commands.size() > MAX_COMMANDS_PER_TICK)
+			throw new SlickException("Cannot record more than " + MAX_COMMANDS_PER_TICK + " commands in a tick");
+		try {
+			out.putInt(delta);
+			out.putByte(commands.size());
+			for (int i = 0; i < commands.size(); i++) {
+				writeCommand(commands, i);
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to write recording " + path, e);
+		}
+	}
+	/**
+	 * Finish a tick after the world has been updated for it, writing the world hash when one is due. Called by the world.
+	 * @param world The recorded world.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public void finishTick(World world) throws SlickException {
+		ticks++;
+		if (ticks % hashInterval != 0)
+			return;
+		try {
+			out.putLong(WorldHash.of(world));
+		} catch (IOException e) {
+			throw new SlickException("Failed to write recording " + path, e);
+		}
+	}
+	/**
+	 * Write the ticks still buffered and close the file.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public void close() throws SlickException {
+		if (channel == null)
+			return;
+		try {
+			if (out != null)
+				out.flush();
+			channel.close();
+		} catch (IOException e) {
+			throw new SlickException("Failed to write recording " + path, e);
+		} finally {
+			channel = null;
+		}
+	}
+	//Write a command as its type followed by the values of that type, the positions at full precision.
+	private void writeCommand(CommandBuffer commands, int index) throws IOException {
+		int type = commands.getType(index);
+		out.putByte(type);
+		switch (type) {
+		case CommandBuffer.SELECT:
+		case CommandBuffer.MOVE:
+			out.putDouble(commands.getX(index));
+			out.putDouble(commands.getY(index));
+			break;
+		case CommandBuffer.TRAIN:
+		case CommandBuffer.BUILD:
+			out.putByte(commands.getValue(index));
+			break;
+		case CommandBuffer.CAMERA_PAN:
+			out.putByte((int)commands.getX(index));
+			out.putByte((int)commands.getY(index));
+			break;
+		}
+	}
+	/**
+	 * Read a command written by writeCommand into a buffer.
+	 * @param in The reader, positioned at the command.
+	 * @param commands The buffer the command is added to.
+	 * @throws SlickException If the command type is unknown.
+	 */
+	public static void readCommand(SnapshotReader in, CommandBuffer commands) throws SlickException {
+		int type = in.getByte();
+		switch (type) {
+		case CommandBuffer.SELECT:
+		case CommandBuffer.MOVE:
+			commands.add(type, in.getDouble(), in.getDouble(), 0);
+			break;
+		case CommandBuffer.TRAIN:
+		case CommandBuffer.BUILD:
+			commands.add(type, 0, 0, in.getByte());
+			break;
+		case CommandBuffer.CAMERA_PAN:
+			commands.add(type, in.getByte(), in.getByte(), 0);
+			break;
+		default:
+			throw new SlickException("Unknown command type " + type + " in recording");
+		}
+	}
+}
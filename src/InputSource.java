@@ -0,0 +1,35 @@
+
+/**
+ * Source of the player input consumed by the world each frame.
+ * Uses the Slick Input key and mouse button codes.
+ */
+public interface InputSource {
+	/**
+	 * Check whether a mouse button has been pressed since the last check.
+	 * @param button The mouse button code.
+	 * @return Whether the button has been pressed.
+	 */
+	public boolean isMousePressed(int button);
+	/**
+	 * Get the x-position of the mouse on the screen.
+	 * @return The x-position of the mouse.
+	 */
+	public int getMouseX();
+	/**
+	 * Get the y-position of the mouse on the screen.
+	 * @return The y-position of the mouse.
+	 */
+	public int getMouseY();
+	/**
+	 * Check whether a key has been pressed since the last check.
+	 * @param key The key code.
+	 * @return Whether the key has been pressed.
+	 */
+	public boolean isKeyPressed(int key);
+	/**
+	 * Check whether a key is currently held down.
+	 * @param key The key code.
+	 * @return Whether the key is held down.
+	 */
+	public boolean isKeyDown(int key);
+}
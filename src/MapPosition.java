@@ -0,0 +1,37 @@
+/**
+ * A position which keeps its coordinates in its own fields, used for everything but the units in the unit store.
+ */
+public class MapPosition extends Position {
+	private double x;
+    private double y;
+	
+    /**
+     * Constructor to set the position.
+     * @param x X-position.
+     * @param y Y-position.
+     */
+    public MapPosition(double x, double y) {
+    	this.x = x;
+    	this.y = y;
+    }
+    /**
+     * Constructor to copy another position.
+     * @param otherPos The position to copy.
+     */
+    public MapPosition(Position otherPos) {
+    	this(otherPos.getX(), otherPos.getY());
+    }
+	@Override
+	public double getX() {
+		return x;
+	}
+	@Override
+	public double getY() {
+		return y;
+	}
+	@Override
+	public void set(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+}
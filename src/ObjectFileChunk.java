@@ -0,0 +1,250 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses the rows of one part of an object initialisation file: a game object name and position on each row.
+ * Rows are read straight from the bytes of the file, so no string is created for a valid row.
+ * Several chunks of the same file can be parsed at the same time on a fork-join pool.
+ */
+public class ObjectFileChunk extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	//Average length of a row, used to size the arrays before parsing.
+	private static final int EXPECTED_ROW_BYTES = 20;
+	//Most digits of a number which can be turned into a double exactly, and the largest exact power of ten.
+	private static final int MAX_EXACT_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private ByteBuffer data;
+	private int from;
+	private int to;
+	private byte[][] names;
+
+	//The parsed rows: the index of the object name in names, and the position.
+	private int size = 0;
+	private int[] types;
+	private double[] xs;
+	private double[] ys;
+	private int lineCount = 0;
+	//The line inside the chunk and the problem of each row which could not be parsed.
+	private List<Integer> errorLines = new ArrayList<Integer>();
+	private List<String> errorMessages = new ArrayList<String>();
+
+	/**
+	 * Constructor.
+	 * @param data The bytes of the whole file, only read with absolute gets so it can be shared between chunks.
+	 * @param from The index of the first byte of the chunk, at the start of a line.
+	 * @param to The index after the last byte of the chunk, at the start of a line or the end of the file.
+	 * @param names The accepted object names, as bytes.
+	 */
+	public ObjectFileChunk(ByteBuffer data, int from, int to, byte[][] names) {
+		this.data = data;
+		this.from = from;
+		this.to = to;
+		this.names = names;
+		int capacity = Math.max((to - from) / EXPECTED_ROW_BYTES, 1);
+		types = new int[capacity];
+		xs = new double[capacity];
+		ys = new double[capacity];
+	}
+	@Override
+	protected void compute() {
+		int lineStart = from;
+		while (lineStart < to) {
+			int lineEnd = lineStart;
+			while (lineEnd < to && data.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			parseRow(lineStart, lineEnd);
+			lineCount++;
+			lineStart = lineEnd + 1;
+		}
+	}
+	/**
+	 * Get the number of rows parsed.
+	 * @return size The number of valid rows.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Get the object name of a row.
+	 * @param row The index of the row among the valid rows.
+	 * @return The index of the name in the accepted names.
+	 */
+	public int getType(int row) {
+		return types[row];
+	}
+	/**
+	 * Get the x-position of a row.
+	 * @param row The index of the row among the valid rows.
+	 * @return The x-position on the map.
+	 */
+	public double getX(int row) {
+		return xs[row];
+	}
+	/**
+	 * Get the y-position of a row.
+	 * @param row The index of the row among the valid rows.
+	 * @return The y-position on the map.
+	 */
+	public double getY(int row) {
+		return ys[row];
+	}
+	/**
+	 * Get the number of lines in the chunk, including blank and invalid ones.
+	 * @return lineCount The number of lines.
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+	/**
+	 * Get the lines which could not be parsed, counted from 0 at the start of the chunk.
+	 * @return errorLines The lines, in the order of errorMessages.
+	 */
+	public List<Integer> getErrorLines() {
+		return errorLines;
+	}
+	/**
+	 * Get what was wrong with each line which could not be parsed.
+	 * @return errorMessages The problems, in the order of errorLines.
+	 */
+	public List<String> getErrorMessages() {
+		return errorMessages;
+	}
+	//Parse a row of the format: gameObject name, xPos, yPos. Blank rows are skipped.
+	private void parseRow(int start, int end) {
+		if (end > start && data.get(end - 1) == '\r')
+			end--;
+		start = skipSpaces(start, end);
+		if (start == end)
+			return;
+		int nameEnd = indexOfComma(start, end);
+		int xEnd = indexOfComma(Math.min(nameEnd + 1, end), end);
+		if (xEnd == end) {
+			error("expected an object name, x and y separated by commas but found \"" + text(start, end) + "\"");
+			return;
+		}
+		int yEnd = indexOfComma(xEnd + 1, end);
+		int type = findName(start, nameEnd);
+		if (type < 0) {
+			error("unknown object type \"" + text(start, nameEnd).trim() + "\"");
+			return;
+		}
+		double x = parseNumber(nameEnd + 1, xEnd);
+		if (Double.isNaN(x)) {
+			error("invalid x-position \"" + text(nameEnd + 1, xEnd).trim() + "\"");
+			return;
+		}
+		double y = parseNumber(xEnd + 1, yEnd);
+		if (Double.isNaN(y)) {
+			error("invalid y-position \"" + text(xEnd + 1, yEnd).trim() + "\"");
+			return;
+		}
+		if (size == types.length)
+			grow();
+		types[size] = type;
+		xs[size] = x;
+		ys[size] = y;
+		size++;
+	}
+	//Get the index of the accepted name between two bytes, ignoring spaces around it, or -1.
+	private int findName(int start, int end) {
+		start = skipSpaces(start, end);
+		while (end > start && data.get(end - 1) == ' ') {
+			end--;
+		}
+		for (int i = 0; i < names.length; i++) {
+			byte[] name = names[i];
+			if (name.length != end - start)
+				continue;
+			int j = 0;
+			while (j < name.length && data.get(start + j) == name[j]) {
+				j++;
+			}
+			if (j == name.length)
+				return i;
+		}
+		return -1;
+	}
+	//Parse a decimal number between two bytes, NaN if it is not one or does not fit a finite double.
+	//Short numbers are worked out from their digits, which gives the same double as Double.parseDouble.
+	private double parseNumber(int start, int end) {
+		start = skipSpaces(start, end);
+		while (end > start && data.get(end - 1) == ' ') {
+			end--;
+		}
+		int i = start;
+		boolean negative = false;
+		if (i < end && (data.get(i) == '-' || data.get(i) == '+')) {
+			negative = data.get(i) == '-';
+			i++;
+		}
+		long digits = 0;
+		int digitCount = 0;
+		int fractionDigits = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			byte b = data.get(i);
+			if (b >= '0' && b <= '9') {
+				digits = digits * 10 + (b - '0');
+				digitCount++;
+				if (point)
+					fractionDigits++;
+			} else if (b == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (i == end && digitCount > 0 && digitCount <= MAX_EXACT_DIGITS) {
+			double value = digits / POWERS_OF_TEN[fractionDigits];
+			return negative ? -value : value;
+		}
+		//Long numbers and exponents are left to the JDK, which also accepts Infinity and overflows 1e400 to it.
+		try {
+			double value = Double.parseDouble(text(start, end));
+			return Double.isInfinite(value) ? Double.NaN : value;
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+	private int indexOfComma(int start, int end) {
+		while (start < end && data.get(start) != ',') {
+			start++;
+		}
+		return start;
+	}
+	private int skipSpaces(int start, int end) {
+		while (start < end && data.get(start) == ' ') {
+			start++;
+		}
+		return start;
+	}
+	private String text(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = data.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	private void error(String message) {
+		errorLines.add(lineCount);
+		errorMessages.add(message);
+	}
+	private void grow() {
+		int capacity = types.length * 2;
+		int[] newTypes = new int[capacity];
+		double[] newXs = new double[capacity];
+		double[] newYs = new double[capacity];
+		System.arraycopy(types, 0, newTypes, 0, size);
+		System.arraycopy(xs, 0, newXs, 0, size);
+		System.arraycopy(ys, 0, newYs, 0, size);
+		types = newTypes;
+		xs = newXs;
+		ys = newYs;
+	}
+}
@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Reads an object initialisation file, like assets/objects.csv, with a game object name and position on each row.
+ * The file is memory-mapped and split into chunks at line breaks, which are parsed in parallel.
+ * Rows which cannot be parsed are skipped and reported with their line number.
+ */
+public class ObjectFileLoader {
+	//Files are split into chunks of about this many bytes, small files are parsed in one chunk.
+	private static final int CHUNK_BYTES = 1 << 20;
+	//Most bad rows reported one by one, the rest are only counted.
+	private static final int MAX_REPORTED_ERRORS = 20;
+
+	private String path;
+	private List<ObjectFileChunk> chunks = new ArrayList<ObjectFileChunk>();
+	private int size = 0;
+	private int errorCount = 0;
+
+	/**
+	 * Constructor. Read and parse a whole file.
+	 * @param path The path of the file.
+	 * @param names The accepted object names, the type of a row is the index of its name.
+	 * @throws SlickException If the file cannot be read.
+	 */
+	public ObjectFileLoader(String path, String[] names) throws SlickException {
+		this.path = path;
+		byte[][] nameBytes = new byte[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			nameBytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new SlickException("File " + path + " is too large");
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int length = data.limit();
+			int from = 0;
+			while (from < length) {
+				int to = Math.min(from + CHUNK_BYTES, length);
+				//Move the end of the chunk to the start of the next line.
+				while (to < length && data.get(to - 1) != '\n') {
+					to++;
+				}
+				chunks.add(new ObjectFileChunk(data, from, to, nameBytes));
+				from = to;
+			}
+			ForkJoinTask.invokeAll(chunks);
+		} catch (NoSuchFileException e) {
+			throw new SlickException("File " + path + " not found", e);
+		} catch (IOException e) {
+			throw new SlickException("Failed to read " + path + ": " + e.getMessage(), e);
+		}
+		for (ObjectFileChunk chunk: chunks) {
+			size += chunk.size();
+			errorCount += chunk.getErrorLines().size();
+		}
+	}
+	/**
+	 * Get the number of valid rows in the file.
+	 * @return size The number of objects.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Get the number of rows which could not be parsed.
+	 * @return errorCount The number of bad rows.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+	/**
+	 * Get the parsed chunks, in the order of the file.
+	 * @return chunks The chunks, each with its valid rows.
+	 */
+	public List<ObjectFileChunk> getChunks() {
+		return chunks;
+	}
+	/**
+	 * Count the valid rows of a type.
+	 * @param type The index of an object name.
+	 * @return The number of rows with that name.
+	 */
+	public int count(int type) {
+		int count = 0;
+		for (ObjectFileChunk chunk: chunks) {
+			for (int row = 0; row < chunk.size(); row++) {
+				if (chunk.getType(row) == type)
+					count++;
+			}
+		}
+		return count;
+	}
+	/**
+	 * Print the bad rows with their line number in the file, like "assets/objects.csv:12: unknown object type".
+	 */
+	public void reportErrors() {
+		int reported = 0;
+		int firstLine = 1;
+		for (ObjectFileChunk chunk: chunks) {
+			List<Integer> lines = chunk.getErrorLines();
+			for (int i = 0; i < lines.size() && reported < MAX_REPORTED_ERRORS; i++, reported++) {
+				System.out.println(path + ":" + (firstLine + lines.get(i)) + ": " + chunk.getErrorMessages().get(i));
+			}
+			firstLine += chunk.getLineCount();
+		}
+		if (errorCount > reported)
+			System.out.println(path + ": " + (errorCount - reported) + " more bad rows skipped");
+	}
+}
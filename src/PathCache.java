@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * Least recently used cache of paths, keyed by a start and goal node packed into a long.
+ * Keeps its entries in plain arrays, so looking up and adding paths creates no objects.
+ */
+public class PathCache {
+	private static final int EMPTY = -1;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private int capacity;
+	//Entries, linked from the most recently used (head) to the least recently used (tail).
+	private long[] keys;
+	private int[][] paths;
+	private int[] previous;
+	private int[] next;
+	private int head = EMPTY;
+	private int tail = EMPTY;
+	private int size = 0;
+	//Open addressing hash table from key to entry, with linear probing.
+	private int[] table;
+	private int mask;
+
+	/**
+	 * Constructor.
+	 * @param capacity The largest number of paths kept.
+	 */
+	public PathCache(int capacity) {
+		this.capacity = Math.max(capacity, 1);
+		keys = new long[this.capacity];
+		paths = new int[this.capacity][];
+		previous = new int[this.capacity];
+		next = new int[this.capacity];
+		//Keep the table at most half full, so probe sequences stay short.
+		int tableSize = Integer.highestOneBit(this.capacity * 2 - 1) << 1;
+		table = new int[tableSize];
+		mask = tableSize - 1;
+		Arrays.fill(table, EMPTY);
+	}
+	/**
+	 * Get the number of cached paths.
+	 * @return size The number of cached paths.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Get a cached path and mark it as most recently used.
+	 * @param key The packed start and goal node.
+	 * @return The cached path, or null if it is not cached.
+	 */
+	public int[] get(long key) {
+		int entry = find(key);
+		if (entry == EMPTY)
+			return null;
+		unlink(entry);
+		linkFirst(entry);
+		return paths[entry];
+	}
+	/**
+	 * Add a path to the cache, replacing the least recently used one when the cache is full.
+	 * @param key The packed start and goal node.
+	 * @param path The path to cache.
+	 */
+	public void put(long key, int[] path) {
+		int entry = find(key);
+		if (entry != EMPTY) {
+			unlink(entry);
+		} else {
+			if (size == capacity) {
+				entry = tail;
+				removeFromTable(keys[entry]);
+				unlink(entry);
+			} else {
+				entry = size++;
+			}
+			keys[entry] = key;
+			insertIntoTable(key, entry);
+		}
+		paths[entry] = path;
+		linkFirst(entry);
+	}
+	/**
+	 * Remove all the cached paths.
+	 */
+	public void clear() {
+		Arrays.fill(table, EMPTY);
+		Arrays.fill(paths, null);
+		head = EMPTY;
+		tail = EMPTY;
+		size = 0;
+	}
+	private int slotOf(long key) {
+		return (int)((key * HASH_MULTIPLIER) >>> Integer.SIZE) & mask;
+	}
+	private int find(long key) {
+		for (int slot = slotOf(key); table[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[table[slot]] == key)
+				return table[slot];
+		}
+		return EMPTY;
+	}
+	private void insertIntoTable(long key, int entry) {
+		int slot = slotOf(key);
+		while (table[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = entry;
+	}
+	//Remove a key and move later keys of the same probe sequence back, so lookups never stop early.
+	private void removeFromTable(long key) {
+		int hole = slotOf(key);
+		while (keys[table[hole]] != key) {
+			hole = (hole + 1) & mask;
+		}
+		for (int slot = (hole + 1) & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+			int home = slotOf(keys[table[slot]]);
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				table[hole] = table[slot];
+				hole = slot;
+			}
+		}
+		table[hole] = EMPTY;
+	}
+	private void unlink(int entry) {
+		if (previous[entry] != EMPTY)
+			next[previous[entry]] = next[entry];
+		else
+			head = next[entry];
+		if (next[entry] != EMPTY)
+			previous[next[entry]] = previous[entry];
+		else
+			tail = previous[entry];
+	}
+	private void linkFirst(int entry) {
+		previous[entry] = EMPTY;
+		next[entry] = head;
+		if (head != EMPTY)
+			previous[head] = entry;
+		head = entry;
+		if (tail == EMPTY)
+			tail = entry;
+	}
+}
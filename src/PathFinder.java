@@ -0,0 +1,139 @@
+/**
+ * Finds the shortest walkable route between two tiles with A* search.
+ * Units move in eight directions, but never cut the corner of a solid tile.
+ * Found paths are kept in a least recently used cache, so units travelling
+ * between the same two tiles share one path.
+ * Paths can be found from several threads at once: every thread searches with its own search state,
+ * and the cache is split into stripes which are locked one at a time.
+ */
+public class PathFinder {
+	/**Number of paths kept in the cache.*/
+	public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+	//The cache is split into 2^CACHE_STRIPE_BITS stripes, chosen by the top bits of the mixed key.
+	private static final int CACHE_STRIPE_BITS = 4;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	//Cached result for two tiles without a route between them.
+	private static final int[] NO_PATH = new int[0];
+
+	private Terrain terrain;
+	private int width;
+	private PathCache[] caches;
+	//The search state of each thread finding paths, created on its first search.
+	private ThreadLocal<PathSearch> searches = new ThreadLocal<PathSearch>();
+
+	/**
+	 * Constructor with the default cache capacity.
+	 * @param terrain The tile flags to search on.
+	 */
+	public PathFinder(Terrain terrain) {
+		this(terrain, DEFAULT_CACHE_CAPACITY);
+	}
+	/**
+	 * Constructor.
+	 * @param terrain The tile flags to search on.
+	 * @param cacheCapacity The number of paths kept in the cache, shared out between its stripes.
+	 */
+	public PathFinder(Terrain terrain, int cacheCapacity) {
+		this.terrain = terrain;
+		width = terrain.getWidth();
+		caches = new PathCache[1 << CACHE_STRIPE_BITS];
+		int stripeCapacity = (cacheCapacity + caches.length - 1) / caches.length;
+		for (int i = 0; i < caches.length; i++) {
+			caches[i] = new PathCache(stripeCapacity);
+		}
+	}
+	/**
+	 * Get the node id of a tile.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return The node id used in paths.
+	 */
+	public int nodeOf(int tileX, int tileY) {
+		return tileY * width + tileX;
+	}
+	/**
+	 * Get the column of a node.
+	 * @param node The node id.
+	 * @return The column of the tile.
+	 */
+	public int tileXOf(int node) {
+		return node % width;
+	}
+	/**
+	 * Get the row of a node.
+	 * @param node The node id.
+	 * @return The row of the tile.
+	 */
+	public int tileYOf(int node) {
+		return node / width;
+	}
+	/**
+	 * Find the shortest path between two tiles, using the cache when possible. Safe to call from several threads.
+	 * A path only depends on its two tiles, so which thread finds it first does not change the result.
+	 * @param startX The column of the start tile.
+	 * @param startY The row of the start tile.
+	 * @param goalX The column of the goal tile.
+	 * @param goalY The row of the goal tile.
+	 * @return The node ids from the start to the goal tile, both included. Null if there is no route.
+	 *         The array is shared with other callers and must not be changed.
+	 */
+	public int[] findPath(int startX, int startY, int goalX, int goalY) {
+		if (terrain.isSolid(startX, startY) || terrain.isSolid(goalX, goalY))
+			return null;
+		int start = nodeOf(startX, startY);
+		int goal = nodeOf(goalX, goalY);
+		long key = ((long)start << Integer.SIZE) | goal;
+		PathCache cache = caches[stripeOf(key)];
+		int[] path;
+		synchronized (cache) {
+			path = cache.get(key);
+		}
+		if (path == null) {
+			//Searched without holding the lock, so other threads can use the stripe meanwhile.
+			path = getSearch().search(start, goal);
+			if (path == null)
+				path = NO_PATH;
+			synchronized (cache) {
+				cache.put(key, path);
+			}
+		}
+		return path == NO_PATH ? null : path;
+	}
+	/**
+	 * Forget all cached paths. Needed when tiles become solid or walkable.
+	 */
+	public void clearCache() {
+		for (int i = 0; i < caches.length; i++) {
+			synchronized (caches[i]) {
+				caches[i].clear();
+			}
+		}
+	}
+	/**
+	 * Get the number of cached paths.
+	 * @return The number of cached paths.
+	 */
+	public int getCacheSize() {
+		int size = 0;
+		for (int i = 0; i < caches.length; i++) {
+			synchronized (caches[i]) {
+				size += caches[i].size();
+			}
+		}
+		return size;
+	}
+	//Get the search state of the calling thread.
+	private PathSearch getSearch() {
+		PathSearch search = searches.get();
+		if (search == null) {
+			search = new PathSearch(terrain);
+			searches.set(search);
+		}
+		return search;
+	}
+	//Choose the stripe of a key from the top bits of the mixed key, which the cache's own table does not use.
+	private int stripeOf(long key) {
+		return (int)((key * HASH_MULTIPLIER) >>> (Long.SIZE - CACHE_STRIPE_BITS));
+	}
+}
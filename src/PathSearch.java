@@ -0,0 +1,155 @@
+/**
+ * The search state of the A* search of a path finder, reused between searches.
+ * A search changes it throughout, so every thread searching for paths has its own.
+ */
+public class PathSearch {
+	//Costs of a straight and a diagonal step, roughly 1 and the square root of 2.
+	private static final int STRAIGHT_COST = 10;
+	private static final int DIAGONAL_COST = 14;
+	private static final int[] NEIGHBOUR_DX = {1, -1, 0, 0, 1, 1, -1, -1};
+	private static final int[] NEIGHBOUR_DY = {0, 0, 1, -1, 1, -1, 1, -1};
+	private static final int STRAIGHT_NEIGHBOURS = 4;
+	private static final int NO_NODE = -1;
+
+	private Terrain terrain;
+	private int width;
+	//A node belongs to the current search only when its stamp matches.
+	private int[] gScore;
+	private int[] parent;
+	private int[] stamp;
+	private boolean[] closed;
+	private int currentStamp = 0;
+	//Binary min-heap of node ids ordered by f score, with the heap slot of each node for decreasing keys.
+	private int[] heap;
+	private int[] fScore;
+	private int[] heapSlot;
+	private int heapSize = 0;
+
+	/**
+	 * Constructor.
+	 * @param terrain The tile flags to search on.
+	 */
+	public PathSearch(Terrain terrain) {
+		this.terrain = terrain;
+		width = terrain.getWidth();
+		int nodeCount = terrain.getWidth() * terrain.getHeight();
+		gScore = new int[nodeCount];
+		parent = new int[nodeCount];
+		stamp = new int[nodeCount];
+		closed = new boolean[nodeCount];
+		heap = new int[nodeCount];
+		fScore = new int[nodeCount];
+		heapSlot = new int[nodeCount];
+	}
+	/**
+	 * A* search from start to goal with the octile distance as heuristic.
+	 * The result only depends on the two nodes and the terrain, not on earlier searches.
+	 * @param start The node id of the start tile.
+	 * @param goal The node id of the goal tile.
+	 * @return The node ids from the start to the goal tile, both included. Null if there is no route.
+	 */
+	public int[] search(int start, int goal) {
+		currentStamp++;
+		heapSize = 0;
+		int goalX = goal % width;
+		int goalY = goal / width;
+		open(start, 0, NO_NODE, heuristic(start % width, start / width, goalX, goalY));
+		while (heapSize > 0) {
+			int node = pop();
+			if (node == goal)
+				return buildPath(goal);
+			closed[node] = true;
+			int x = node % width;
+			int y = node / width;
+			for (int i = 0; i < NEIGHBOUR_DX.length; i++) {
+				int nextX = x + NEIGHBOUR_DX[i];
+				int nextY = y + NEIGHBOUR_DY[i];
+				if (terrain.isSolid(nextX, nextY))
+					continue;
+				boolean diagonal = i >= STRAIGHT_NEIGHBOURS;
+				//A diagonal step is only allowed when both tiles beside it are walkable.
+				if (diagonal && (terrain.isSolid(nextX, y) || terrain.isSolid(x, nextY)))
+					continue;
+				int next = nextY * width + nextX;
+				int g = gScore[node] + (diagonal ? DIAGONAL_COST : STRAIGHT_COST);
+				if (stamp[next] != currentStamp) {
+					open(next, g, node, g + heuristic(nextX, nextY, goalX, goalY));
+				} else if (!closed[next] && g < gScore[next]) {
+					gScore[next] = g;
+					parent[next] = node;
+					fScore[next] = g + heuristic(nextX, nextY, goalX, goalY);
+					siftUp(heapSlot[next]);
+				}
+			}
+		}
+		return null;
+	}
+	private int heuristic(int x, int y, int goalX, int goalY) {
+		int dx = Math.abs(x - goalX);
+		int dy = Math.abs(y - goalY);
+		return STRAIGHT_COST * Math.max(dx, dy) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dy);
+	}
+	private int[] buildPath(int goal) {
+		int length = 0;
+		for (int node = goal; node != NO_NODE; node = parent[node]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int node = goal; node != NO_NODE; node = parent[node]) {
+			path[--length] = node;
+		}
+		return path;
+	}
+	//Add a node seen for the first time in this search to the heap.
+	private void open(int node, int g, int from, int f) {
+		stamp[node] = currentStamp;
+		closed[node] = false;
+		gScore[node] = g;
+		parent[node] = from;
+		fScore[node] = f;
+		heap[heapSize] = node;
+		heapSlot[node] = heapSize;
+		heapSize++;
+		siftUp(heapSize - 1);
+	}
+	private int pop() {
+		int top = heap[0];
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapSlot[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+	private void siftUp(int slot) {
+		int node = heap[slot];
+		while (slot > 0) {
+			int parentSlot = (slot - 1) / 2;
+			if (fScore[heap[parentSlot]] <= fScore[node])
+				break;
+			heap[slot] = heap[parentSlot];
+			heapSlot[heap[slot]] = slot;
+			slot = parentSlot;
+		}
+		heap[slot] = node;
+		heapSlot[node] = slot;
+	}
+	private void siftDown(int slot) {
+		int node = heap[slot];
+		while (true) {
+			int child = slot * 2 + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && fScore[heap[child + 1]] < fScore[heap[child]])
+				child++;
+			if (fScore[node] <= fScore[heap[child]])
+				break;
+			heap[slot] = heap[child];
+			heapSlot[heap[slot]] = slot;
+			slot = child;
+		}
+		heap[slot] = node;
+		heapSlot[node] = slot;
+	}
+}
@@ -1,51 +1,65 @@
 /**
- * Store the position of game objects.
+ * The position of game objects, without saying where the coordinates are kept:
+ * MapPosition keeps them in its own fields and UnitPosition in the unit store.
  * Handles calculating distance and radian between two positions.
  * Check whether two position is equal.
  */
-public class Position {
+public abstract class Position {
 	/**The distance tolerance to consider the unit has reached the position*/
 	public static final double DISTANCE_TOLERANCE = 0.25;
-	
-	private double x;
-    private double y;
-	
-    /**
-     * Constructor to set the position.
-     * @param x X-position.
-     * @param y Y-position.
-     */
-    public Position(double x, double y) {
-    	this.x = x;
-    	this.y = y;
-    }
+	private static final double DISTANCE_TOLERANCE_SQUARED = DISTANCE_TOLERANCE * DISTANCE_TOLERANCE;
+
 	/**
 	 * Get X-position of a position.
 	 * @return X-position 
 	 */
-	public double getX() {
-		return x;
-	}
+	public abstract double getX();
 	/**
-	 * Set X-position of a position.
+	 * Get Y-position of a position.
+	 * @return Y-position 
+	 */
+	public abstract double getY();
+	/**
+	 * Move this position to the given point, without creating a new position.
 	 * @param x Expecting X-position
+	 * @param y Expecting Y-position
 	 */
-	public void setX(double x) {
-		this.x = x;
-	}
+	public abstract void set(double x, double y);
 	/**
-	 * Get Y-position of a position.
-	 * @return Y-position 
+	 * Set X-position of a position.
+	 * @param x Expecting X-position
 	 */
-	public double getY() {
-		return y;
+	public void setX(double x) {
+		set(x, getY());
 	}
 	/**
 	 * Set Y-position of a position.
 	 * @param y Expecting Y-position
 	 */
 	public void setY(double y) {
-		this.y = y;
+		set(getX(), y);
+	}
+	/**
+	 * Get X-position in 16.16 fixed point, see FixedPoint.
+	 * @return X-position, rounded to the fixed point grid.
+	 */
+	public int getFixedX() {
+		return FixedPoint.toFixed(getX());
+	}
+	/**
+	 * Get Y-position in 16.16 fixed point, see FixedPoint.
+	 * @return Y-position, rounded to the fixed point grid.
+	 */
+	public int getFixedY() {
+		return FixedPoint.toFixed(getY());
+	}
+	/**
+	 * Move this position to a point given in 16.16 fixed point, which is kept exactly.
+	 * @param fixedX Expecting X-position in fixed point.
+	 * @param fixedY Expecting Y-position in fixed point.
+	 */
+	public void setFixed(int fixedX, int fixedY) {
+		set(FixedPoint.toDouble(fixedX), FixedPoint.toDouble(fixedY));
 	}
 	/**
 	 * Get the distance between this position and input position.
@@ -53,7 +67,26 @@ public class Position {
 	 * @return The distance between this position and input position.
 	 */
 	public double distance(Position otherPos) {
-		return  Math.sqrt((x-otherPos.getX())*(x-otherPos.getX())+(y-otherPos.getY())*(y-otherPos.getY()));
+		return Math.sqrt(distanceSquared(otherPos.getX(), otherPos.getY()));
+	}
+	/**
+	 * Get the squared distance between this position and a given point, avoiding the square root.
+	 * @param otherX X-position of the other point.
+	 * @param otherY Y-position of the other point.
+	 * @return The squared distance between this position and the point.
+	 */
+	public double distanceSquared(double otherX, double otherY) {
+		double dx = getX() - otherX;
+		double dy = getY() - otherY;
+		return dx*dx + dy*dy;
+	}
+	/**
+	 * Get the squared distance between this position and input position, avoiding the square root.
+	 * @param otherPos Other position.
+	 * @return The squared distance between this position and input position.
+	 */
+	public double distanceSquared(Position otherPos) {
+		return distanceSquared(otherPos.getX(), otherPos.getY());
 	}
 	/**
 	 * 	Get the angle between two positions
@@ -61,7 +94,25 @@ public class Position {
 	 * @return The angle between two positions
 	 */
 	public double radian(Position otherPos) {
-		return Math.atan2(otherPos.getY()-y, otherPos.getX()-x);
+		return radian(otherPos.getX(), otherPos.getY());
+	}
+	/**
+	 * 	Get the angle between this position and a given point
+	 * @param otherX X-position of the other point.
+	 * @param otherY Y-position of the other point.
+	 * @return The angle between this position and the point
+	 */
+	public double radian(double otherX, double otherY) {
+		return Math.atan2(otherY-getY(), otherX-getX());
+	}
+	/**
+	 * Check whether a given point is within DISTANCE_TOLERANCE of this position, like equals without a position object.
+	 * @param otherX X-position of the other point.
+	 * @param otherY Y-position of the other point.
+	 * @return Whether the point is considered the same position.
+	 */
+	public boolean isAt(double otherX, double otherY) {
+		return distanceSquared(otherX, otherY) < DISTANCE_TOLERANCE_SQUARED;
 	}
 	/**
 	 * 	Check whether two position are equal.
@@ -75,7 +126,7 @@ public class Position {
 	    if (obj instanceof Position){
 	    	Position pos = (Position) obj;
 	    	if (pos == this) return true;
-	    	else if (distance(pos) < DISTANCE_TOLERANCE) 
+	    	else if (isAt(pos.getX(), pos.getY())) 
 	    		return true;
 	    	}
 		return false;
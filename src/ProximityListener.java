@@ -0,0 +1,10 @@
+/**
+ * Allow object to be told when units come close to it.
+ */
+public interface ProximityListener {
+	/**
+	 * Called when a unit has entered the area of a trigger registered by this object.
+	 * @param unit The unit which entered the area.
+	 */
+	public void unitEntered(Unit unit);
+}
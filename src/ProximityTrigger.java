@@ -0,0 +1,87 @@
+/**
+ * A circular area of the map which tells its listener when units enter it.
+ * Created and stored by ProximityTriggers.
+ */
+public class ProximityTrigger {
+	private ProximityListener listener;
+	private double x;
+	private double y;
+	private double radius;
+	private boolean once;
+	private boolean registered = true;
+
+	/**
+	 * Constructor.
+	 * @param listener The object told about units entering the area.
+	 * @param x The x-position of the centre of the area.
+	 * @param y The y-position of the centre of the area.
+	 * @param radius The radius of the area.
+	 * @param once Whether the trigger unregisters itself after its first event.
+	 */
+	public ProximityTrigger(ProximityListener listener, double x, double y, double radius, boolean once) {
+		this.listener = listener;
+		this.x = x;
+		this.y = y;
+		this.radius = radius;
+		this.once = once;
+	}
+	/**
+	 * Get the listener told when a unit enters the trigger.
+	 * @return listener The listener.
+	 */
+	public ProximityListener getListener() {
+		return listener;
+	}
+	/**
+	 * Get the x-position of the centre of the trigger.
+	 * @return x The x-position on the map.
+	 */
+	public double getX() {
+		return x;
+	}
+	/**
+	 * Get the y-position of the centre of the trigger.
+	 * @return y The y-position on the map.
+	 */
+	public double getY() {
+		return y;
+	}
+	/**
+	 * Get the radius around the centre a unit has to enter.
+	 * @return radius The radius.
+	 */
+	public double getRadius() {
+		return radius;
+	}
+	/**
+	 * Check whether the trigger unregisters itself after its first event.
+	 * @return once Whether the trigger fires only once.
+	 */
+	public boolean isOnce() {
+		return once;
+	}
+	/**
+	 * Check whether the trigger still receives events.
+	 * @return registered Whether the trigger is registered.
+	 */
+	public boolean isRegistered() {
+		return registered;
+	}
+	/**
+	 * Mark the trigger as no longer receiving events. Only called by ProximityTriggers.
+	 */
+	public void setUnregistered() {
+		registered = false;
+	}
+	/**
+	 * Check whether a point is inside the area.
+	 * @param pointX The x-position of the point.
+	 * @param pointY The y-position of the point.
+	 * @return Whether the point is at most the radius away from the centre.
+	 */
+	public boolean contains(double pointX, double pointY) {
+		double dx = pointX - x;
+		double dy = pointY - y;
+		return dx*dx + dy*dy <= radius*radius;
+	}
+}
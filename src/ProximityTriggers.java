@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The proximity triggers of a world, bucketed by the map cells their areas overlap.
+ * When a unit moves or is added, only the triggers of the cell it ends up in are checked, and a trigger
+ * fires when the unit was outside its area before and is inside now. The events are queued and handed
+ * to the listeners by dispatch, so listeners see units where they were at the end of the unit update.
+ */
+public class ProximityTriggers {
+	private World world;
+	private double cellSize;
+	private int columns;
+	private int rows;
+	//Each cell holds the triggers whose area overlaps it, created when the first trigger is registered.
+	private List<List<ProximityTrigger>> cells;
+	private int size = 0;
+	//Entered areas not yet dispatched, the trigger and unit of each event at the same index.
+	private List<ProximityTrigger> pendingTriggers = new ArrayList<ProximityTrigger>();
+	private List<Unit> pendingUnits = new ArrayList<Unit>();
+
+	/**
+	 * Constructor. Create an empty set of triggers covering the whole map.
+	 * @param world The world whose units enter the triggers.
+	 * @param cellSize The width and height of a cell in pixels, normally the tile size.
+	 * @param columns The number of cells in x direction.
+	 * @param rows The number of cells in y direction.
+	 */
+	public ProximityTriggers(World world, double cellSize, int columns, int rows) {
+		this.world = world;
+		this.cellSize = cellSize;
+		this.columns = Math.max(columns, 1);
+		this.rows = Math.max(rows, 1);
+		int cellCount = this.columns * this.rows;
+		cells = new ArrayList<List<ProximityTrigger>>(cellCount);
+		for (int i = 0; i < cellCount; i++) {
+			cells.add(null);
+		}
+	}
+	/**
+	 * Get the number of registered triggers.
+	 * @return size The number of triggers.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Register a circular area. A unit already inside it counts as entering it.
+	 * @param listener The object told about units entering the area.
+	 * @param pos The centre of the area.
+	 * @param radius The largest distance a unit can be away from the centre to be inside.
+	 * @param once Whether the trigger unregisters itself after its first event.
+	 * @return The trigger, which can be passed to unregister.
+	 */
+	public ProximityTrigger register(ProximityListener listener, Position pos, double radius, boolean once) {
+		ProximityTrigger trigger = new ProximityTrigger(listener, pos.getX(), pos.getY(), radius, once);
+		for (int row = rowOf(pos.getY() - radius); row <= rowOf(pos.getY() + radius); row++) {
+			for (int column = columnOf(pos.getX() - radius); column <= columnOf(pos.getX() + radius); column++) {
+				List<ProximityTrigger> cell = cells.get(row * columns + column);
+				if (cell == null) {
+					cell = new ArrayList<ProximityTrigger>();
+					cells.set(row * columns + column, cell);
+				}
+				cell.add(trigger);
+			}
+		}
+		size++;
+		Unit inside = world.unitAt(pos, radius);
+		if (inside != null)
+			queue(trigger, inside);
+		return trigger;
+	}
+	/**
+	 * Stop a trigger from receiving events.
+	 * @param trigger The trigger returned by register.
+	 */
+	public void unregister(ProximityTrigger trigger) {
+		if (trigger == null || !trigger.isRegistered())
+			return;
+		trigger.setUnregistered();
+		double radius = trigger.getRadius();
+		for (int row = rowOf(trigger.getY() - radius); row <= rowOf(trigger.getY() + radius); row++) {
+			for (int column = columnOf(trigger.getX() - radius); column <= columnOf(trigger.getX() + radius); column++) {
+				cells.get(row * columns + column).remove(trigger);
+			}
+		}
+		size--;
+	}
+	/**
+	 * Check the triggers around a unit which has moved. Called whenever a unit changes position.
+	 * @param unit The unit which has moved.
+	 * @param fromX The x-position before the move.
+	 * @param fromY The y-position before the move.
+	 * @param x The x-position after the move.
+	 * @param y The y-position after the move.
+	 */
+	public void unitMoved(Unit unit, double fromX, double fromY, double x, double y) {
+		if (size == 0)
+			return;
+		List<ProximityTrigger> cell = cells.get(rowOf(y) * columns + columnOf(x));
+		if (cell == null)
+			return;
+		for (int i = 0; i < cell.size(); i++) {
+			ProximityTrigger trigger = cell.get(i);
+			if (trigger.contains(x, y) && !trigger.contains(fromX, fromY))
+				queue(trigger, unit);
+		}
+	}
+	/**
+	 * Check the triggers around a unit which has been added to the world.
+	 * @param unit The new unit.
+	 */
+	public void unitAdded(Unit unit) {
+		if (size == 0)
+			return;
+		double x = unit.getPos().getX();
+		double y = unit.getPos().getY();
+		List<ProximityTrigger> cell = cells.get(rowOf(y) * columns + columnOf(x));
+		if (cell == null)
+			return;
+		for (int i = 0; i < cell.size(); i++) {
+			if (cell.get(i).contains(x, y))
+				queue(cell.get(i), unit);
+		}
+	}
+	/**
+	 * Check whether units entered areas since the last dispatch.
+	 * @return Whether dispatch has listeners to tell.
+	 */
+	public boolean hasPendingEvents() {
+		return !pendingTriggers.isEmpty();
+	}
+	/**
+	 * Tell the listeners about the units which entered their areas since the last dispatch.
+	 * Triggers registered to fire once are unregistered before their listener is called.
+	 */
+	public void dispatch() {
+		for (int i = 0; i < pendingTriggers.size(); i++) {
+			ProximityTrigger trigger = pendingTriggers.get(i);
+			if (!trigger.isRegistered())
+				continue;
+			if (trigger.isOnce())
+				unregister(trigger);
+			trigger.getListener().unitEntered(pendingUnits.get(i));
+		}
+		pendingTriggers.clear();
+		pendingUnits.clear();
+	}
+	private void queue(ProximityTrigger trigger, Unit unit) {
+		pendingTriggers.add(trigger);
+		pendingUnits.add(unit);
+	}
+	private int columnOf(double x) {
+		return clamp((int)Math.floor(x / cellSize), columns);
+	}
+	private int rowOf(double y) {
+		return clamp((int)Math.floor(y / cellSize), rows);
+	}
+	private static int clamp(int index, int count) {
+		if (index < 0)
+			return 0;
+		else if (index >= count)
+			return count - 1;
+		return index;
+	}
+}
@@ -1,16 +1,16 @@
-import org.newdawn.slick.Image;
-import org.newdawn.slick.SlickException;
-import org.newdawn.slick.Input;
+import java.io.IOException;
 
 /**
  * Child class of Building.
  * Can be activated and then add Engineer capacity.
  */
-public class Pylon extends Building{
+public class Pylon extends Building implements ProximityListener {
 	private static final String IMAGE_PATH = "assets/buildings/pylon.png";
 	private static final String ACTIVE_IMAGE_PATH = "assets/buildings/pylon_active.png";
 	private static final int PYLON_ACTIVATION_AREA = 32;
 	private boolean activated = false;
+	//Fires once when the first unit comes near the pylon.
+	private ProximityTrigger activationTrigger;
 
 	/**
 	 * Constructor. See details in parent Unit class.
@@ -19,25 +19,16 @@ public class Pylon extends Building{
 	 */
 	public Pylon(World world, Position mapPosition) {
 		super(world, mapPosition, IMAGE_PATH);
+		activationTrigger = world.getProximityTriggers().register(this, getPos(), PYLON_ACTIVATION_AREA, true);
 	}
 	
 	/**
-	 * Update the pylon for a frame.
-	 * @param input The input of the player
-	 * @param delta Time passed since last frame (milliseconds).
-	 * @param mouseButton Which mouse button did the player click 
-	 * @param clickPos The position of the click.
+	 * If any unit near the pylon, it will be activated.
+	 * @param unit The unit which came near the pylon.
 	 */
 	@Override
-	public void update(Input input, int delta, int mouseButton, Position clickPos) {
-		super.update(input, delta, mouseButton, clickPos);
-		//If any unit near the pylon, it will be activated.
-		for(Unit unit : getWorld().getUnits()) {
-			if(getPos().distance(unit.getPos()) <= PYLON_ACTIVATION_AREA) {
-				setActivated();
-				break;
-			}
-		}
+	public void unitEntered(Unit unit) {
+		setActivated();
 	}
 	
 	/**
@@ -46,12 +37,30 @@ public class Pylon extends Building{
 	public void setActivated() {
 		if (!activated) {
 			activated = true;
-			Engineer.increaseCapacity();
-			try {
-				setImage(new Image(ACTIVE_IMAGE_PATH));
-			} catch (SlickException e) {
-				e.printStackTrace();
-			}
+			getWorld().getProximityTriggers().unregister(activationTrigger);
+			getWorld().increaseEngineerCapacity();
+			setImagePath(ACTIVE_IMAGE_PATH);
+		}
+	}
+	
+	/**
+	 * Write whether the pylon is activated. See details in parent class.
+	 */
+	@Override
+	public void writeState(SnapshotWriter out) throws IOException {
+		super.writeState(out);
+		out.putBoolean(activated);
+	}
+	/**
+	 * Read whether the pylon is activated. The engineer capacity it gave is saved with the world.
+	 */
+	@Override
+	public void readState(SnapshotReader in) {
+		super.readState(in);
+		activated = in.getBoolean();
+		if (activated) {
+			getWorld().getProximityTriggers().unregister(activationTrigger);
+			setImagePath(ACTIVE_IMAGE_PATH);
 		}
 	}
 	
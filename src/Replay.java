@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Runs a session recorded by InputRecorder again without a window, as fast as the simulation allows.
+ * The recorded world is loaded from the snapshot at the start of the file, and every tick is updated
+ * with its recorded frame time and commands. The recorded hashes are compared with the hash of the replayed world.
+ */
+public class Replay {
+	private static final int PATH_ARG_INDEX = 0;
+	private static final int PARALLEL_ARG_INDEX = 1;
+	private static final int HASH_STREAM_ARG_INDEX = 2;
+	private static final double NANOS_PER_SECOND = 1e9;
+	//Tick reported as the first mismatch when every hash matched.
+	private static final long NO_MISMATCH = -1;
+
+	private String path;
+	private SnapshotReader in;
+	private World world;
+	private int hashInterval;
+	private CommandBuffer commands = new CommandBuffer();
+	private long ticks = 0;
+	private long checkedHashes = 0;
+	private long firstMismatchTick = NO_MISMATCH;
+
+	/**
+	 * Constructor. Load the world a recording starts with.
+	 * @param path The path of the recording file.
+	 * @throws SlickException If the file cannot be read or is not a recording of this version.
+	 */
+	public Replay(String path) throws SlickException {
+		this.path = path;
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			//The mapping stays valid after the channel is closed.
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			in = new SnapshotReader(buffer);
+			if (in.getInt() != InputRecorder.MAGIC)
+				throw new SlickException(path + " is not a recording");
+			int version = in.getInt();
+			if (version != InputRecorder.VERSION)
+				throw new SlickException("Unsupported recording version " + version + " in " + path);
+			hashInterval = in.getInt();
+			world = WorldSnapshot.read(in, path);
+		} catch (IOException | RuntimeException e) {
+			throw new SlickException("Failed to read recording " + path, e);
+		}
+	}
+	/**
+	 * Get the replayed world.
+	 * @return world The world, in the state after the ticks replayed so far.
+	 */
+	public World getWorld() {
+		return world;
+	}
+	/**
+	 * Get the number of ticks replayed so far.
+	 * @return ticks The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * Get the number of recorded hashes compared so far.
+	 * @return checkedHashes The number of hashes.
+	 */
+	public long getCheckedHashes() {
+		return checkedHashes;
+	}
+	/**
+	 * Get the first tick after which the replayed world differed from the recorded one.
+	 * As the hash is only recorded every few ticks, the state can have diverged up to that many ticks earlier.
+	 * @return firstMismatchTick The tick count when the hashes first differed, or -1 if they all matched.
+	 */
+	public long getFirstMismatchTick() {
+		return firstMismatchTick;
+	}
+	/**
+	 * Check whether every hash compared so far matched.
+	 * @return Whether the replay has matched the recording.
+	 */
+	public boolean isMatching() {
+		return firstMismatchTick == NO_MISMATCH;
+	}
+	/**
+	 * Replay the next recorded tick.
+	 * @return Whether a tick was replayed, false at the end of the recording.
+	 * @throws SlickException If the recording is damaged.
+	 */
+	public boolean step() throws SlickException {
+		if (!in.hasRemaining())
+			return false;
+		try {
+			commands.clear();
+			int delta = in.getInt();
+			int commandCount = in.getByte() & 0xFF;
+			for (int i = 0; i < commandCount; i++) {
+				InputRecorder.readCommand(in, commands);
+			}
+			world.update(commands, delta);
+			ticks++;
+			if (ticks % hashInterval == 0) {
+				checkedHashes++;
+				if (in.getLong() != WorldHash.of(world) && firstMismatchTick == NO_MISMATCH)
+					firstMismatchTick = ticks;
+			}
+		} catch (BufferUnderflowException e) {
+			throw new SlickException("Recording " + path + " ends in the middle of tick " + (ticks + 1), e);
+		}
+		return true;
+	}
+	/**
+	 * Replay all the ticks left in the recording.
+	 * @throws SlickException If the recording is damaged.
+	 */
+	public void run() throws SlickException {
+		while (step()) {
+
+		}
+	}
+
+	/** Start-up method. Replays a recording headless and reports the tick rate and whether it matched.
+	 * @param args The path of the recording, and optionally whether to use the parallel unit update
+	 * and the path of a hash stream to write, for HashDiff.
+	 */
+	public static void main(String[] args) throws SlickException {
+		if (args.length <= PATH_ARG_INDEX) {
+			System.out.println("Usage: Replay <recording> [parallel] [hash stream]");
+			return;
+		}
+		Replay replay = new Replay(args[PATH_ARG_INDEX]);
+		replay.getWorld().setParallelUnitUpdate(args.length > PARALLEL_ARG_INDEX && Boolean.parseBoolean(args[PARALLEL_ARG_INDEX]));
+		HashRecorder hashRecorder = null;
+		if (args.length > HASH_STREAM_ARG_INDEX) {
+			hashRecorder = new HashRecorder(args[HASH_STREAM_ARG_INDEX]);
+			replay.getWorld().setHashRecorder(hashRecorder);
+		}
+		long start = System.nanoTime();
+		replay.run();
+		double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		if (hashRecorder != null)
+			hashRecorder.close();
+		System.out.println(String.format("Replayed %d ticks in %.3f s (%.0f ticks/s)",
+				replay.getTicks(), seconds, replay.getTicks() / seconds));
+		if (replay.isMatching())
+			System.out.println("All " + replay.getCheckedHashes() + " hashes matched");
+		else
+			System.out.println("Hash mismatch by tick " + replay.getFirstMismatchTick());
+	}
+}
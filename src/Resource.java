@@ -1,4 +1,4 @@
-import org.newdawn.slick.Input;
+import java.io.IOException;
 
 /**
  * Parent class for all resources.
@@ -62,30 +62,54 @@ public class Resource extends GameObject implements Destructible {
 	}
 	
 	/**
-	 *Destroy resource.
+	 *Destroy resource. It is removed from the world at the end of the update.
 	 */
 	@Override
 	public void destroy() {
-		isDestroyed = true;
+		if (!isDestroyed) {
+			isDestroyed = true;
+			getWorld().destroy(this);
+		}
 	}
 	/**
 	 * Update the resource for a frame.
-	 * @param input The input of the player
 	 * @param delta Time passed since last frame (milliseconds).
-	 * @param mouseButton Which mouse button did the player click 
-	 * @param clickPos The position of the click.
 	 */
 	@Override
-	public void update(Input input, int delta, int mouseButton, Position clickPos) {
-		if (amount == 0) isDestroyed = true;
+	public void update(int delta) {
+		if (amount == 0) destroy();
+	}
+
+	/**
+	 *Write the remaining amount. See details in parent class.
+	 */
+	@Override
+	public void writeState(SnapshotWriter out) throws IOException {
+		out.putInt(amount);
+		out.putBoolean(isDestroyed);
+	}
+	/**
+	 *Read the remaining amount. See details in parent class.
+	 */
+	@Override
+	public void readState(SnapshotReader in) {
+		amount = in.getInt();
+		isDestroyed = in.getBoolean();
 	}
 
+	/**
+	 *Resources are drawn on the lowest layer.
+	 */
+	@Override
+	public int getRenderLayer() {
+		return SpriteBatch.RESOURCE_LAYER;
+	}
 	/**
 	 *Render the resource.
 	 */
 	@Override
-	public void render() {
-		if (!isDestroyed) super.render();
+	public void render(SpriteBatch batch) {
+		if (!isDestroyed) super.render(batch);
 	}
 }
 
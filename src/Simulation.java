@@ -0,0 +1,120 @@
+import org.newdawn.slick.SlickException;
+
+/**
+ * Runs the world without a window or OpenGL context.
+ * Steps the simulation as fast as possible with a fixed frame time and input driven by code.
+ */
+public class Simulation {
+	private static final int DEFAULT_TICKS = 10000;
+	private static final int DEFAULT_DELTA = FixedTimestep.DEFAULT_TICK_MILLIS;
+	private static final int TICKS_ARG_INDEX = 0;
+	private static final int DELTA_ARG_INDEX = 1;
+	private static final int PARALLEL_ARG_INDEX = 2;
+	private static final int FIXED_POINT_ARG_INDEX = 3;
+	private static final int SKIP_ARG_INDEX = 4;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private World world;
+	private SyntheticInputSource input;
+	private long ticks = 0;
+	private boolean skipSettledTicks = false;
+
+	/**
+	 * Constructor. Load a headless world.
+	 * @throws SlickException
+	 */
+	public Simulation() throws SlickException {
+		this(new World());
+	}
+	/**
+	 * Constructor. Simulate a given world.
+	 * @param world The world to simulate, which does not need a renderer attached.
+	 */
+	public Simulation(World world) {
+		this.world = world;
+		input = new SyntheticInputSource();
+	}
+	/**
+	 * Get the simulated world.
+	 * @return world The simulated world.
+	 */
+	public World getWorld() {
+		return world;
+	}
+	/**
+	 * Get the input source feeding the world, used to script clicks and key presses.
+	 * @return input The input source of the world.
+	 */
+	public SyntheticInputSource getInput() {
+		return input;
+	}
+	/**
+	 * Get the number of ticks simulated so far.
+	 * @return ticks The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	/**
+	 * Check whether run skips the ticks in which nothing would happen.
+	 * @return skipSettledTicks Whether settled ticks are skipped.
+	 */
+	public boolean isSkipSettledTicks() {
+		return skipSettledTicks;
+	}
+	/**
+	 * Choose whether run skips the ticks in which nothing would happen, see World.getSkippableUpdates.
+	 * The world ends in the same state either way, but long idle stretches, like engineers mining, are passed at once.
+	 * Skipped ticks are counted as simulated.
+	 * @param skipSettledTicks Whether to skip settled ticks.
+	 */
+	public void setSkipSettledTicks(boolean skipSettledTicks) {
+		this.skipSettledTicks = skipSettledTicks;
+	}
+	/**
+	 * Simulate one frame.
+	 * @param delta Time passed since last frame (milliseconds).
+	 * @throws SlickException
+	 */
+	public void step(int delta) throws SlickException {
+		world.update(input, delta);
+		ticks++;
+	}
+	/**
+	 * Simulate a number of frames of the same length.
+	 * @param count The number of frames.
+	 * @param delta Time passed in each frame (milliseconds).
+	 * @throws SlickException
+	 */
+	public void run(long count, int delta) throws SlickException {
+		for (long i = 0; i < count; i++) {
+			step(delta);
+			if (skipSettledTicks && input.isIdle()) {
+				long skipped = Math.min(world.getSkippableUpdates(delta), count - i - 1);
+				if (skipped > 0) {
+					world.skipUpdates(skipped, delta);
+					ticks += skipped;
+					i += skipped;
+				}
+			}
+		}
+	}
+
+	/** Start-up method. Simulates the default world headless and reports the tick rate.
+	 * @param args Optional number of ticks, frame time in milliseconds, whether to use the parallel unit update,
+	 * whether to use fixed point movement and whether to skip settled ticks.
+	 */
+	public static void main(String[] args) throws SlickException {
+		long count = args.length > TICKS_ARG_INDEX ? Long.parseLong(args[TICKS_ARG_INDEX]) : DEFAULT_TICKS;
+		int delta = args.length > DELTA_ARG_INDEX ? Integer.parseInt(args[DELTA_ARG_INDEX]) : DEFAULT_DELTA;
+		Simulation simulation = new Simulation();
+		simulation.getWorld().setParallelUnitUpdate(args.length > PARALLEL_ARG_INDEX && Boolean.parseBoolean(args[PARALLEL_ARG_INDEX]));
+		simulation.getWorld().setFixedPointMovement(args.length > FIXED_POINT_ARG_INDEX && Boolean.parseBoolean(args[FIXED_POINT_ARG_INDEX]));
+		simulation.setSkipSettledTicks(args.length > SKIP_ARG_INDEX && Boolean.parseBoolean(args[SKIP_ARG_INDEX]));
+		long start = System.nanoTime();
+		simulation.run(count, delta);
+		double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		System.out.println(String.format("Simulated %d ticks of %d ms in %.3f s (%.0f ticks/s)",
+				count, delta, seconds, count / seconds));
+	}
+}
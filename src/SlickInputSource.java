@@ -0,0 +1,36 @@
+import org.newdawn.slick.Input;
+
+/**
+ * Input source reading the keyboard and mouse through the Slick game container.
+ */
+public class SlickInputSource implements InputSource {
+	private Input input;
+
+	/**
+	 * Constructor.
+	 * @param input The Slick input of the game container.
+	 */
+	public SlickInputSource(Input input) {
+		this.input = input;
+	}
+	@Override
+	public boolean isMousePressed(int button) {
+		return input.isMousePressed(button);
+	}
+	@Override
+	public int getMouseX() {
+		return input.getMouseX();
+	}
+	@Override
+	public int getMouseY() {
+		return input.getMouseY();
+	}
+	@Override
+	public boolean isKeyPressed(int key) {
+		return input.isKeyPressed(key);
+	}
+	@Override
+	public boolean isKeyDown(int key) {
+		return input.isKeyDown(key);
+	}
+}
@@ -0,0 +1,163 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the primitive values of a world snapshot from a buffer, normally a memory-mapped file.
+ * References are resolved against the objects already read, so they must point to earlier sections.
+ */
+public class SnapshotReader {
+	private ByteBuffer buffer;
+	private List<Resource> resources = new ArrayList<Resource>();
+	private List<Building> buildings = new ArrayList<Building>();
+	private List<Unit> units = new ArrayList<Unit>();
+
+	/**
+	 * Constructor.
+	 * @param buffer The snapshot bytes, read from the current position.
+	 */
+	public SnapshotReader(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	/**
+	 * Check whether there is more to read, like further ticks of a recording.
+	 * @return Whether bytes are left after the current position.
+	 */
+	public boolean hasRemaining() {
+		return buffer.hasRemaining();
+	}
+	/**
+	 * Read a byte written by SnapshotWriter.putByte.
+	 * @return The byte, sign-extended to an int.
+	 */
+	public int getByte() {
+		return buffer.get();
+	}
+	/**
+	 * Read a boolean written by SnapshotWriter.putBoolean.
+	 * @return The boolean.
+	 */
+	public boolean getBoolean() {
+		return buffer.get() != 0;
+	}
+	/**
+	 * Read an int written by SnapshotWriter.putInt.
+	 * @return The int.
+	 */
+	public int getInt() {
+		return buffer.getInt();
+	}
+	/**
+	 * Read a long written by SnapshotWriter.putLong.
+	 * @return The long.
+	 */
+	public long getLong() {
+		return buffer.getLong();
+	}
+	/**
+	 * Read a double written by SnapshotWriter.putDouble.
+	 * @return The double.
+	 */
+	public double getDouble() {
+		return buffer.getDouble();
+	}
+	/**
+	 * Read a string written by SnapshotWriter.putString.
+	 * @return The string.
+	 */
+	public String getString() {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	/**
+	 * Read an int array written by SnapshotWriter.putIntArray.
+	 * @return The array, may be null.
+	 */
+	public int[] getIntArray() {
+		int length = buffer.getInt();
+		if (length == SnapshotWriter.NO_REFERENCE)
+			return null;
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return values;
+	}
+	/**
+	 * Read a timer written by SnapshotWriter.putTimer into an existing timer with the saved timeout.
+	 * A running timer is scheduled again on its wheel, for the time it had left.
+	 * @param timer The timer to restore, which must be stopped.
+	 */
+	public void readTimer(Timer timer) {
+		if (!getBoolean())
+			return;
+		buffer.getInt();
+		restore(timer);
+	}
+	/**
+	 * Read a timer written by SnapshotWriter.putTimer which may be missing.
+	 * @param wheel The timer wheel of the loading world.
+	 * @param listener The object told when the timer runs out.
+	 * @return A timer in the saved state, or null if none was saved.
+	 */
+	public Timer readOptionalTimer(TimerWheel wheel, TimerListener listener) {
+		if (!getBoolean())
+			return null;
+		Timer timer = new Timer(wheel, buffer.getInt(), listener);
+		restore(timer);
+		return timer;
+	}
+	private void restore(Timer timer) {
+		timer.setElapsedMillis(buffer.getInt());
+		boolean running = getBoolean();
+		long sequence = buffer.getLong();
+		if (running)
+			timer.start(sequence);
+	}
+	/**
+	 * Remember a resource read, so later references can be resolved.
+	 * @param res The resource, in the order of the snapshot.
+	 */
+	public void addResource(Resource res) {
+		resources.add(res);
+	}
+	/**
+	 * Remember a building read, so later references can be resolved.
+	 * @param building The building, in the order of the snapshot.
+	 */
+	public void addBuilding(Building building) {
+		buildings.add(building);
+	}
+	/**
+	 * Remember a unit read, so later references can be resolved.
+	 * @param unit The unit, in the order of the snapshot.
+	 */
+	public void addUnit(Unit unit) {
+		units.add(unit);
+	}
+	/**
+	 * Read a reference to a resource.
+	 * @return The resource, or null for no reference.
+	 */
+	public Resource getResourceReference() {
+		int index = buffer.getInt();
+		return index == SnapshotWriter.NO_REFERENCE ? null : resources.get(index);
+	}
+	/**
+	 * Read a reference to a building.
+	 * @return The building, or null for no reference.
+	 */
+	public Building getBuildingReference() {
+		int index = buffer.getInt();
+		return index == SnapshotWriter.NO_REFERENCE ? null : buildings.get(index);
+	}
+	/**
+	 * Read a reference to a unit.
+	 * @return The unit, or null for no reference.
+	 */
+	public Unit getUnitReference() {
+		int index = buffer.getInt();
+		return index == SnapshotWriter.NO_REFERENCE ? null : units.get(index);
+	}
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes the primitive values of a world snapshot to a file channel through a direct buffer.
+ * Game objects are written as references: the index they were registered with, or -1 for none.
+ */
+public class SnapshotWriter {
+	/**Reference written for a missing object.*/
+	public static final int NO_REFERENCE = -1;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private Map<GameObject, Integer> references = new IdentityHashMap<GameObject, Integer>();
+
+	/**
+	 * Constructor.
+	 * @param channel The channel to write to, from its current position.
+	 */
+	public SnapshotWriter(FileChannel channel) {
+		this.channel = channel;
+	}
+	/**
+	 * Give an object the index other objects refer to it by.
+	 * @param obj The object.
+	 * @param index Its index in its section of the snapshot.
+	 */
+	public void register(GameObject obj, int index) {
+		references.put(obj, index);
+	}
+	/**
+	 * Check whether an object has been registered.
+	 * @param obj The object.
+	 * @return Whether the object has an index.
+	 */
+	public boolean isRegistered(GameObject obj) {
+		return references.containsKey(obj);
+	}
+	/**
+	 * Write a byte.
+	 * @param value The value, of which only the lowest 8 bits are written.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putByte(int value) throws IOException {
+		ensure(Byte.BYTES);
+		buffer.put((byte)value);
+	}
+	/**
+	 * Write a boolean as a byte of 1 or 0.
+	 * @param value The value.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putBoolean(boolean value) throws IOException {
+		putByte(value ? 1 : 0);
+	}
+	/**
+	 * Write an int.
+	 * @param value The value.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putInt(int value) throws IOException {
+		ensure(Integer.BYTES);
+		buffer.putInt(value);
+	}
+	/**
+	 * Write a long.
+	 * @param value The value.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putLong(long value) throws IOException {
+		ensure(Long.BYTES);
+		buffer.putLong(value);
+	}
+	/**
+	 * Write a double.
+	 * @param value The value.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putDouble(double value) throws IOException {
+		ensure(Double.BYTES);
+		buffer.putDouble(value);
+	}
+	/**
+	 * Write a string as its length followed by its UTF-8 bytes.
+	 * @param value The string, null is written as an empty string.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putString(String value) throws IOException {
+		byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		for (byte b: bytes) {
+			putByte(b);
+		}
+	}
+	/**
+	 * Write an int array as its length followed by its values, or -1 for null.
+	 * @param values The array.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putIntArray(int[] values) throws IOException {
+		if (values == null) {
+			putInt(NO_REFERENCE);
+			return;
+		}
+		putInt(values.length);
+		for (int value: values) {
+			putInt(value);
+		}
+	}
+	/**
+	 * Write the state of a timer, or that there is none. A running timer keeps its schedule order.
+	 * @param timer The timer, may be null.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putTimer(Timer timer) throws IOException {
+		putBoolean(timer != null);
+		if (timer != null) {
+			putInt(timer.getTimeoutMillis());
+			putInt(timer.getElapsedMillis());
+			putBoolean(timer.isRunning());
+			putLong(timer.getSequence());
+		}
+	}
+	/**
+	 * Write a reference to a registered object.
+	 * @param obj The object, may be null.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void putReference(GameObject obj) throws IOException {
+		Integer index = obj == null ? null : references.get(obj);
+		putInt(index == null ? NO_REFERENCE : index);
+	}
+	/**
+	 * Write what is left in the buffer to the channel.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes)
+			flush();
+	}
+}
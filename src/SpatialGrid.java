@@ -0,0 +1,223 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid which buckets game objects by the map cell they are standing in.
+ * Handles point, radius and rectangle queries by only looking at the cells near the query area.
+ * @param <T> The type of game object stored in the grid.
+ */
+public class SpatialGrid<T extends GameObject> {
+	/**Cell index of an object which is not stored in any grid.*/
+	public static final int NOT_INDEXED = -1;
+
+	private double cellSize;
+	private int columns;
+	private int rows;
+	//Each cell holds the objects standing in it, created when the first object enters.
+	private List<List<GameObject>> cells;
+	private int size = 0;
+
+	/**
+	 * Constructor. Create an empty grid covering the whole map.
+	 * @param cellSize The width and height of a cell in pixels, normally the tile size.
+	 * @param columns The number of cells in x direction.
+	 * @param rows The number of cells in y direction.
+	 */
+	public SpatialGrid(double cellSize, int columns, int rows) {
+		this.cellSize = cellSize;
+		this.columns = Math.max(columns, 1);
+		this.rows = Math.max(rows, 1);
+		int cellCount = this.columns * this.rows;
+		cells = new ArrayList<List<GameObject>>(cellCount);
+		for (int i = 0; i < cellCount; i++) {
+			cells.add(null);
+		}
+	}
+	/**
+	 * Get the number of objects in the grid.
+	 * @return size The number of objects in the grid.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Add an object to the cell of its current position.
+	 * @param obj The object to be added.
+	 */
+	public void insert(T obj) {
+		if (obj == null || obj.getPos() == null || obj.getGrid() != null)
+			return;
+		addToCell(obj, cellIndexOf(obj.getPos().getX(), obj.getPos().getY()));
+		obj.setGrid(this);
+		size++;
+	}
+	/**
+	 * Remove an object from the grid.
+	 * @param obj The object to be removed.
+	 */
+	public void remove(GameObject obj) {
+		if (obj == null || obj.getGrid() != this)
+			return;
+		removeFromCell(obj);
+		obj.setGrid(null);
+		size--;
+	}
+	/**
+	 * Move an object to the cell of its current position. Called whenever the object changes position.
+	 * @param obj The object which has moved.
+	 */
+	public void update(GameObject obj) {
+		if (obj.getGrid() != this)
+			return;
+		int newCell = cellIndexOf(obj.getPos().getX(), obj.getPos().getY());
+		if (newCell != obj.getGridCell()) {
+			removeFromCell(obj);
+			addToCell(obj, newCell);
+		}
+	}
+	/**
+	 * Find the object closest to a given position within a radius.
+	 * @param pos The position to search around.
+	 * @param radius The largest distance an object can be away from the position.
+	 * @return The nearest object within the radius, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public T nearest(Position pos, double radius) {
+		if (pos == null)
+			return null;
+		double x = pos.getX();
+		double y = pos.getY();
+		double radiusSquared = radius * radius;
+		GameObject nearestObj = null;
+		double minDistanceSquared = radiusSquared;
+		int minColumn = columnOf(x - radius);
+		int maxColumn = columnOf(x + radius);
+		int minRow = rowOf(y - radius);
+		int maxRow = rowOf(y + radius);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				List<GameObject> cell = cells.get(row * columns + column);
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.size(); i++) {
+					GameObject obj = cell.get(i);
+					double distanceSquared = obj.getPos().distanceSquared(x, y);
+					//Keep the first object found when several are equally close.
+					if (distanceSquared < minDistanceSquared || (nearestObj == null && distanceSquared <= radiusSquared)) {
+						nearestObj = obj;
+						minDistanceSquared = distanceSquared;
+					}
+				}
+			}
+		}
+		return (T)nearestObj;
+	}
+	/**
+	 * Collect all the objects within a radius of a given position.
+	 * @param pos The position to search around.
+	 * @param radius The largest distance an object can be away from the position.
+	 * @param result The list which the found objects are added to.
+	 * @return result The given list, for chaining.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> within(Position pos, double radius, List<T> result) {
+		if (pos == null)
+			return result;
+		double x = pos.getX();
+		double y = pos.getY();
+		double radiusSquared = radius * radius;
+		int minColumn = columnOf(x - radius);
+		int maxColumn = columnOf(x + radius);
+		int minRow = rowOf(y - radius);
+		int maxRow = rowOf(y + radius);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				List<GameObject> cell = cells.get(row * columns + column);
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.size(); i++) {
+					GameObject obj = cell.get(i);
+					if (obj.getPos().distanceSquared(x, y) <= radiusSquared)
+						result.add((T)obj);
+				}
+			}
+		}
+		return result;
+	}
+	/**
+	 * Collect all the objects inside a rectangle of the map, like the part of the map shown on screen.
+	 * @param left The smallest x-position of the rectangle.
+	 * @param top The smallest y-position of the rectangle.
+	 * @param right The largest x-position of the rectangle.
+	 * @param bottom The largest y-position of the rectangle.
+	 * @param result The list which the found objects are added to.
+	 * @return result The given list, for chaining.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> inRect(double left, double top, double right, double bottom, List<T> result) {
+		int minColumn = columnOf(left);
+		int maxColumn = columnOf(right);
+		int minRow = rowOf(top);
+		int maxRow = rowOf(bottom);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				List<GameObject> cell = cells.get(row * columns + column);
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.size(); i++) {
+					GameObject obj = cell.get(i);
+					double x = obj.getPos().getX();
+					double y = obj.getPos().getY();
+					if (x >= left && x <= right && y >= top && y <= bottom)
+						result.add((T)obj);
+				}
+			}
+		}
+		return result;
+	}
+	//Add an object to the end of a cell and remember where it is stored.
+	private void addToCell(GameObject obj, int cellIndex) {
+		List<GameObject> cell = cells.get(cellIndex);
+		if (cell == null) {
+			cell = new ArrayList<GameObject>();
+			cells.set(cellIndex, cell);
+		}
+		obj.setGridCell(cellIndex);
+		obj.setGridSlot(cell.size());
+		cell.add(obj);
+	}
+	//Remove an object from its cell by moving the last object of the cell into its slot.
+	private void removeFromCell(GameObject obj) {
+		List<GameObject> cell = cells.get(obj.getGridCell());
+		int slot = obj.getGridSlot();
+		GameObject last = cell.remove(cell.size() - 1);
+		if (last != obj) {
+			cell.set(slot, last);
+			last.setGridSlot(slot);
+		}
+		obj.setGridCell(NOT_INDEXED);
+	}
+	//Get the cell index of a map position, positions outside the map belong to the edge cells.
+	/**
+	 * Get the index of the cell a point falls in, so a moved object only needs updating when it changes.
+	 * @param x The x-position on the map.
+	 * @param y The y-position on the map.
+	 * @return The index of the cell.
+	 */
+	public int cellIndexOf(double x, double y) {
+		return rowOf(y) * columns + columnOf(x);
+	}
+	private int columnOf(double x) {
+		return clamp((int)Math.floor(x / cellSize), columns);
+	}
+	private int rowOf(double y) {
+		return clamp((int)Math.floor(y / cellSize), rows);
+	}
+	private static int clamp(int index, int count) {
+		if (index < 0)
+			return 0;
+		else if (index >= count)
+			return count - 1;
+		return index;
+	}
+}
@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.newdawn.slick.Image;
+
+/**
+ * Collects the sprites of a frame and draws them grouped by layer and texture.
+ * Each group is drawn between one startUse and endUse, so the texture is bound once per group
+ * and the number of draw calls depends on the number of different images on screen, not the number of sprites.
+ */
+public class SpriteBatch {
+	/**Layer of resources, the lowest.*/
+	public static final int RESOURCE_LAYER = 0;
+	/**Layer of the highlight under a selected building.*/
+	public static final int BUILDING_HIGHLIGHT_LAYER = 1;
+	/**Layer of buildings.*/
+	public static final int BUILDING_LAYER = 2;
+	/**Layer of the highlight under a selected unit.*/
+	public static final int UNIT_HIGHLIGHT_LAYER = 3;
+	/**Layer of units, the highest.*/
+	public static final int UNIT_LAYER = 4;
+	/**Number of layers.*/
+	public static final int LAYER_COUNT = 5;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	//The sprites of the current frame in the order they were added.
+	private Image[] images = new Image[INITIAL_CAPACITY];
+	private float[] xs = new float[INITIAL_CAPACITY];
+	private float[] ys = new float[INITIAL_CAPACITY];
+	private int[] layers = new int[INITIAL_CAPACITY];
+	private int[] textureIds = new int[INITIAL_CAPACITY];
+	private int count = 0;
+	//The different images of the current frame, the position in the list is the texture id.
+	private List<Image> textures = new ArrayList<Image>();
+	//Counting sort state: sprites per group, then the sprite indexes ordered by group.
+	private int[] groupStarts = new int[LAYER_COUNT + 1];
+	private int[] order = new int[INITIAL_CAPACITY];
+	private int lastSpriteCount = 0;
+	private int lastDrawCalls = 0;
+
+	/**
+	 * Add a sprite to the current frame.
+	 * @param image The image to draw.
+	 * @param centreX The x-position of the centre of the sprite on the screen.
+	 * @param centreY The y-position of the centre of the sprite on the screen.
+	 * @param layer One of the layer constants. Higher layers are drawn on top.
+	 */
+	public void draw(Image image, float centreX, float centreY, int layer) {
+		if (image == null)
+			return;
+		if (count == images.length)
+			grow();
+		images[count] = image;
+		xs[count] = centreX;
+		ys[count] = centreY;
+		layers[count] = layer;
+		textureIds[count] = textureIdOf(image);
+		count++;
+	}
+	/**
+	 * Draw all the sprites added since the last flush, and start a new frame.
+	 */
+	public void flush() {
+		int groupCount = LAYER_COUNT * textures.size();
+		sortByGroup(groupCount);
+		int drawCalls = 0;
+		for (int group = 0; group < groupCount; group++) {
+			int start = groupStarts[group];
+			int end = groupStarts[group + 1];
+			if (start == end)
+				continue;
+			Image image = images[order[start]];
+			float width = image.getWidth();
+			float height = image.getHeight();
+			image.startUse();
+			for (int i = start; i < end; i++) {
+				int sprite = order[i];
+				//The same corner Image.drawCentered uses.
+				image.drawEmbedded(xs[sprite] - image.getWidth() / 2, ys[sprite] - image.getHeight() / 2, width, height);
+			}
+			image.endUse();
+			drawCalls++;
+		}
+		lastSpriteCount = count;
+		lastDrawCalls = drawCalls;
+		Arrays.fill(images, 0, count, null);
+		count = 0;
+		textures.clear();
+	}
+	/**
+	 * Get the number of sprites drawn by the last flush.
+	 * @return The number of sprites.
+	 */
+	public int getLastSpriteCount() {
+		return lastSpriteCount;
+	}
+	/**
+	 * Get the number of texture groups drawn by the last flush, each one bind and one batch of quads.
+	 * @return The number of draw calls.
+	 */
+	public int getLastDrawCalls() {
+		return lastDrawCalls;
+	}
+	//Find the id of an image, there are only a few different images per frame.
+	private int textureIdOf(Image image) {
+		for (int i = 0; i < textures.size(); i++) {
+			if (textures.get(i) == image)
+				return i;
+		}
+		textures.add(image);
+		return textures.size() - 1;
+	}
+	//Order the sprites by layer, then texture, keeping the order they were added within a group.
+	private void sortByGroup(int groupCount) {
+		if (groupStarts.length < groupCount + 1)
+			groupStarts = new int[groupCount + 1];
+		Arrays.fill(groupStarts, 0, groupCount + 1, 0);
+		for (int i = 0; i < count; i++) {
+			groupStarts[groupOf(i) + 1]++;
+		}
+		for (int group = 0; group < groupCount; group++) {
+			groupStarts[group + 1] += groupStarts[group];
+		}
+		//Place each sprite at the next free index of its group, then shift the starts back.
+		for (int i = 0; i < count; i++) {
+			order[groupStarts[groupOf(i)]++] = i;
+		}
+		for (int group = groupCount; group > 0; group--) {
+			groupStarts[group] = groupStarts[group - 1];
+		}
+		groupStarts[0] = 0;
+	}
+	private int groupOf(int sprite) {
+		return layers[sprite] * textures.size() + textureIds[sprite];
+	}
+	private void grow() {
+		int capacity = images.length * 2;
+		images = Arrays.copyOf(images, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		layers = Arrays.copyOf(layers, capacity);
+		textureIds = Arrays.copyOf(textureIds, capacity);
+		order = Arrays.copyOf(order, capacity);
+	}
+}
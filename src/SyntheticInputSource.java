@@ -0,0 +1,99 @@
+
+/**
+ * Input source driven by code instead of a keyboard and mouse, for running the world headless.
+ * Like Slick, a press is reported once and then cleared, while a held key stays down until released.
+ */
+public class SyntheticInputSource implements InputSource {
+	private static final int KEY_COUNT = 256;
+	private static final int MOUSE_BUTTON_COUNT = 3;
+
+	private boolean[] mousePressed = new boolean[MOUSE_BUTTON_COUNT];
+	private boolean[] keyPressed = new boolean[KEY_COUNT];
+	private boolean[] keyDown = new boolean[KEY_COUNT];
+	private int mouseX = 0;
+	private int mouseY = 0;
+
+	/**
+	 * Click a mouse button at a screen position.
+	 * @param button The mouse button code.
+	 * @param x The x-position on the screen.
+	 * @param y The y-position on the screen.
+	 */
+	public void click(int button, int x, int y) {
+		mouseX = x;
+		mouseY = y;
+		mousePressed[button] = true;
+	}
+	/**
+	 * Press a key once.
+	 * @param key The key code.
+	 */
+	public void pressKey(int key) {
+		keyPressed[key] = true;
+	}
+	/**
+	 * Hold a key down until it is released.
+	 * @param key The key code.
+	 */
+	public void holdKey(int key) {
+		keyDown[key] = true;
+	}
+	/**
+	 * Release a held key.
+	 * @param key The key code.
+	 */
+	public void releaseKey(int key) {
+		keyDown[key] = false;
+	}
+	/**
+	 * Forget all presses which have not been checked yet and release all keys.
+	 */
+	public void clear() {
+		for (int i = 0; i < MOUSE_BUTTON_COUNT; i++) {
+			mousePressed[i] = false;
+		}
+		for (int i = 0; i < KEY_COUNT; i++) {
+			keyPressed[i] = false;
+			keyDown[i] = false;
+		}
+	}
+	/**
+	 * Check whether there is no input for the world to read: no press waiting to be checked and no key held down.
+	 * @return Whether the input is idle.
+	 */
+	public boolean isIdle() {
+		for (int i = 0; i < MOUSE_BUTTON_COUNT; i++) {
+			if (mousePressed[i])
+				return false;
+		}
+		for (int i = 0; i < KEY_COUNT; i++) {
+			if (keyPressed[i] || keyDown[i])
+				return false;
+		}
+		return true;
+	}
+	@Override
+	public boolean isMousePressed(int button) {
+		boolean pressed = mousePressed[button];
+		mousePressed[button] = false;
+		return pressed;
+	}
+	@Override
+	public int getMouseX() {
+		return mouseX;
+	}
+	@Override
+	public int getMouseY() {
+		return mouseY;
+	}
+	@Override
+	public boolean isKeyPressed(int key) {
+		boolean pressed = keyPressed[key];
+		keyPressed[key] = false;
+		return pressed;
+	}
+	@Override
+	public boolean isKeyDown(int key) {
+		return keyDown[key];
+	}
+}
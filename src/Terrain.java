@@ -0,0 +1,149 @@
+
+/**
+ * Flags of every map tile, precomputed from the tile properties when the map is loaded.
+ * Handles the solid and occupied checks with a single array read.
+ */
+public class Terrain {
+	/**Flag of a tile which units cannot move onto.*/
+	public static final byte SOLID = 1;
+	/**Flag of a tile which buildings cannot be created on.*/
+	public static final byte OCCUPIED = 2;
+
+	//Map property attributes.
+	private static final String SOLID_TILE_PROPERTY_NAME = "solid";
+	private static final String OCCUPIED_TILE_PROPERTY_NAME = "occupied";
+	private static final String PROPERTY_VALUE_TRUE = "true";
+
+	private int width;
+	private int height;
+	private int tileWidth;
+	private int tileHeight;
+	//The flags of each tile, row by row.
+	private byte[] flags;
+
+	/**
+	 * Constructor. Read the flags of every tile of a map.
+	 * @param tileGrid The tile layout of the map.
+	 */
+	public Terrain(TileGrid tileGrid) {
+		width = tileGrid.getWidth();
+		height = tileGrid.getHeight();
+		tileWidth = tileGrid.getTileWidth();
+		tileHeight = tileGrid.getTileHeight();
+		flags = new byte[width * height];
+		for (int tileY = 0; tileY < height; tileY++) {
+			for (int tileX = 0; tileX < width; tileX++) {
+				int tileId = tileGrid.getTileId(tileX, tileY);
+				byte tileFlags = 0;
+				if (PROPERTY_VALUE_TRUE.equals(tileGrid.getTileProperty(tileId, SOLID_TILE_PROPERTY_NAME, "")))
+					tileFlags |= SOLID;
+				if (PROPERTY_VALUE_TRUE.equals(tileGrid.getTileProperty(tileId, OCCUPIED_TILE_PROPERTY_NAME, "")))
+					tileFlags |= OCCUPIED;
+				flags[tileY * width + tileX] = tileFlags;
+			}
+		}
+	}
+	/**
+	 * Get the number of tiles in x direction.
+	 * @return width The width of the map in tiles.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	/**
+	 * Get the number of tiles in y direction.
+	 * @return height The height of the map in tiles.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	/**
+	 * Get the width of a tile.
+	 * @return tileWidth The width of a tile in pixels.
+	 */
+	public int getTileWidth() {
+		return tileWidth;
+	}
+	/**
+	 * Get the height of a tile.
+	 * @return tileHeight The height of a tile in pixels.
+	 */
+	public int getTileHeight() {
+		return tileHeight;
+	}
+	/**
+	 * Get the column of the tile containing a map x-position.
+	 * @param x The x-position on the map.
+	 * @return The column of the tile.
+	 */
+	public int tileXOf(double x) {
+		return (int)(x / tileWidth);
+	}
+	/**
+	 * Get the row of the tile containing a map y-position.
+	 * @param y The y-position on the map.
+	 * @return The row of the tile.
+	 */
+	public int tileYOf(double y) {
+		return (int)(y / tileHeight);
+	}
+	/**
+	 * Check whether a tile index is inside the map.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return Whether the tile is inside the map.
+	 */
+	public boolean contains(int tileX, int tileY) {
+		return tileX >= 0 && tileY >= 0 && tileX < width && tileY < height;
+	}
+	/**
+	 * Check whether a tile is solid. Tiles outside the map are solid, so nothing can leave the map.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return Whether the tile is solid.
+	 */
+	public boolean isSolid(int tileX, int tileY) {
+		return !contains(tileX, tileY) || (flags[tileY * width + tileX] & SOLID) != 0;
+	}
+	/**
+	 * Check whether the tile containing a map position is solid.
+	 * @param x The x-position on the map.
+	 * @param y The y-position on the map.
+	 * @return Whether the tile is solid.
+	 */
+	public boolean isSolidAt(double x, double y) {
+		return isSolid(tileXOf(x), tileYOf(y));
+	}
+	/**
+	 * Check whether a tile is occupied. Tiles outside the map are not occupied.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return Whether the tile is occupied.
+	 */
+	public boolean isOccupied(int tileX, int tileY) {
+		return contains(tileX, tileY) && (flags[tileY * width + tileX] & OCCUPIED) != 0;
+	}
+	/**
+	 * Check whether the tile containing a map position is occupied.
+	 * @param x The x-position on the map.
+	 * @param y The y-position on the map.
+	 * @return Whether the tile is occupied.
+	 */
+	public boolean isOccupiedAt(double x, double y) {
+		return isOccupied(tileXOf(x), tileYOf(y));
+	}
+	/**
+	 * Mark a tile as occupied or free, for example when a building is placed on it.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @param occupied Whether the tile is occupied.
+	 */
+	public void setOccupied(int tileX, int tileY, boolean occupied) {
+		if (!contains(tileX, tileY))
+			return;
+		if (occupied)
+			flags[tileY * width + tileX] |= OCCUPIED;
+		else
+			flags[tileY * width + tileX] &= ~OCCUPIED;
+	}
+}
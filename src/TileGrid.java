@@ -0,0 +1,193 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.newdawn.slick.SlickException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * The tile layout of the map, read straight from the Tiled .tmx file.
+ * Unlike the Slick TiledMap it loads no images, so the world can be simulated without a display.
+ */
+public class TileGrid {
+	//Tiled stores flipping flags in the highest bits of a tile id.
+	private static final int TILE_FLIP_FLAGS = 0xE0000000;
+	private static final int NO_TILE = 0;
+
+	private int width;
+	private int height;
+	private int tileWidth;
+	private int tileHeight;
+	//The global tile id of every tile of the first layer, row by row.
+	private int[] tileIds;
+	//The properties of each global tile id.
+	private Map<Integer, Map<String, String>> tileProperties = new HashMap<Integer, Map<String, String>>();
+
+	/**
+	 * Constructor. Load the first tile layer and the tile properties of a map.
+	 * @param mapPath The path of the .tmx file.
+	 * @throws SlickException If the file cannot be read or is not a supported map.
+	 */
+	public TileGrid(String mapPath) throws SlickException {
+		File mapFile = new File(mapPath);
+		Element mapElement = parse(mapFile).getDocumentElement();
+		width = Integer.parseInt(mapElement.getAttribute("width"));
+		height = Integer.parseInt(mapElement.getAttribute("height"));
+		tileWidth = Integer.parseInt(mapElement.getAttribute("tilewidth"));
+		tileHeight = Integer.parseInt(mapElement.getAttribute("tileheight"));
+
+		NodeList tilesets = mapElement.getElementsByTagName("tileset");
+		for (int i = 0; i < tilesets.getLength(); i++) {
+			Element tileset = (Element)tilesets.item(i);
+			int firstGid = Integer.parseInt(tileset.getAttribute("firstgid"));
+			//An external tileset keeps its tiles in a separate .tsx file next to the map.
+			if (!tileset.getAttribute("source").isEmpty())
+				tileset = parse(new File(mapFile.getParentFile(), tileset.getAttribute("source"))).getDocumentElement();
+			readTileProperties(tileset, firstGid);
+		}
+
+		NodeList layers = mapElement.getElementsByTagName("layer");
+		if (layers.getLength() == 0)
+			throw new SlickException("Map " + mapPath + " has no tile layer");
+		tileIds = readLayer((Element)layers.item(0), mapPath);
+	}
+	/**
+	 * Get the number of tiles in x direction.
+	 * @return width The width of the map in tiles.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	/**
+	 * Get the number of tiles in y direction.
+	 * @return height The height of the map in tiles.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	/**
+	 * Get the width of a tile.
+	 * @return tileWidth The width of a tile in pixels.
+	 */
+	public int getTileWidth() {
+		return tileWidth;
+	}
+	/**
+	 * Get the height of a tile.
+	 * @return tileHeight The height of a tile in pixels.
+	 */
+	public int getTileHeight() {
+		return tileHeight;
+	}
+	/**
+	 * Check whether a tile index is inside the map.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return Whether the tile is inside the map.
+	 */
+	public boolean contains(int tileX, int tileY) {
+		return tileX >= 0 && tileY >= 0 && tileX < width && tileY < height;
+	}
+	/**
+	 * Get the global tile id at a tile index.
+	 * @param tileX The column of the tile.
+	 * @param tileY The row of the tile.
+	 * @return The global tile id, 0 if there is no tile.
+	 */
+	public int getTileId(int tileX, int tileY) {
+		if (!contains(tileX, tileY))
+			return NO_TILE;
+		return tileIds[tileY * width + tileX];
+	}
+	/**
+	 * Get a property of a tile, like TiledMap.getTileProperty.
+	 * @param tileId The global tile id.
+	 * @param propertyName The name of the property.
+	 * @param defaultValue The value returned when the tile has no such property.
+	 * @return The value of the property.
+	 */
+	public String getTileProperty(int tileId, String propertyName, String defaultValue) {
+		Map<String, String> properties = tileProperties.get(tileId);
+		if (properties == null || !properties.containsKey(propertyName))
+			return defaultValue;
+		return properties.get(propertyName);
+	}
+	//Store the properties of each tile in a tileset under its global id.
+	private void readTileProperties(Element tileset, int firstGid) {
+		NodeList tiles = tileset.getElementsByTagName("tile");
+		for (int i = 0; i < tiles.getLength(); i++) {
+			Element tile = (Element)tiles.item(i);
+			Map<String, String> properties = new HashMap<String, String>();
+			NodeList propertyList = tile.getElementsByTagName("property");
+			for (int j = 0; j < propertyList.getLength(); j++) {
+				Element property = (Element)propertyList.item(j);
+				properties.put(property.getAttribute("name"), property.getAttribute("value"));
+			}
+			tileProperties.put(firstGid + Integer.parseInt(tile.getAttribute("id")), properties);
+		}
+	}
+	//Decode the tile ids of a layer, supporting csv and base64 (plain, gzip or zlib) data.
+	private int[] readLayer(Element layer, String mapPath) throws SlickException {
+		Element data = (Element)layer.getElementsByTagName("data").item(0);
+		String encoding = data.getAttribute("encoding");
+		String compression = data.getAttribute("compression");
+		int[] ids = new int[width * height];
+		if ("csv".equals(encoding)) {
+			String[] values = data.getTextContent().trim().split("\\s*,\\s*");
+			for (int i = 0; i < ids.length && i < values.length; i++) {
+				ids[i] = (int)Long.parseLong(values[i]) & ~TILE_FLIP_FLAGS;
+			}
+		} else if ("base64".equals(encoding)) {
+			byte[] bytes = Base64.getMimeDecoder().decode(data.getTextContent().trim());
+			try {
+				if ("gzip".equals(compression))
+					bytes = readFully(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+				else if ("zlib".equals(compression))
+					bytes = readFully(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+				else if (!compression.isEmpty())
+					throw new SlickException("Unsupported compression " + compression + " in " + mapPath);
+			} catch (IOException e) {
+				throw new SlickException("Failed to decompress tile data in " + mapPath, e);
+			}
+			//Each tile id is stored as a little-endian 32 bit integer.
+			for (int i = 0; i < ids.length && i * 4 + 3 < bytes.length; i++) {
+				int id = (bytes[i*4] & 0xFF) | (bytes[i*4+1] & 0xFF) << 8 | (bytes[i*4+2] & 0xFF) << 16 | (bytes[i*4+3] & 0xFF) << 24;
+				ids[i] = id & ~TILE_FLIP_FLAGS;
+			}
+		} else {
+			throw new SlickException("Unsupported tile encoding " + encoding + " in " + mapPath);
+		}
+		return ids;
+	}
+	private static byte[] readFully(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+	private static Document parse(File file) throws SlickException {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+		} catch (ParserConfigurationException | SAXException | IOException e) {
+			throw new SlickException("Failed to read map file " + file.getPath(), e);
+		}
+	}
+}
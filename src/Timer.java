@@ -1,20 +1,36 @@
 /**
  * Measure time after receiving command.
+ * A running timer is scheduled on the timer wheel of the world, which tells its listener when it runs out,
+ * so the timer is not touched on the ticks in between.
  */
 public class Timer {
 	private static final int INITIAL_TIMER_VALUE = 0;
+	/**Slot of a timer which is not scheduled on a wheel.*/
+	public static final int NOT_SCHEDULED = -1;
+	private TimerWheel wheel;
+	private TimerListener listener;
 	//The time expected to count.
 	private int timeoutMillis;
-	//The time has passed since the timer begins.
+	//The time has passed since the timer begins, while the timer is stopped.
 	private int elapsedMillis;
 	private boolean isRunning;
+	//Wheel time the running timer runs out at, and its place in the wheel.
+	private long dueMillis;
+	private long sequence;
+	private int slot = NOT_SCHEDULED;
+	private Timer previous = null;
+	private Timer next = null;
 	
 	/**
 	 * Constructor. Set the expected time.
+	 * @param wheel The timer wheel the timer is scheduled on while running.
 	 * @param timeoutMillis The time expected to be counted.
+	 * @param listener The object told when the timer runs out.
 	 */
-	public Timer(int timeoutMillis) {
+	public Timer(TimerWheel wheel, int timeoutMillis, TimerListener listener) {
+		this.wheel = wheel;
 		this.timeoutMillis = timeoutMillis;
+		this.listener = listener;
 		this.elapsedMillis = INITIAL_TIMER_VALUE;
 		isRunning = false;
 	}
@@ -23,19 +39,64 @@ public class Timer {
 	 * @param millis The elapsed time in millisecond.
 	 */
 	public void setElapsedMillis(int millis) {
-		elapsedMillis = millis;
+		if (isRunning) {
+			wheel.cancel(this);
+			wheel.schedule(this, wheel.getMillis() + timeoutMillis - millis);
+		} else {
+			elapsedMillis = millis;
+		}
+	}
+	/**
+	 * Get the time passed since the timer began.
+	 * @return The elapsed time in millisecond.
+	 */
+	public int getElapsedMillis() {
+		if (isRunning)
+			return (int)(timeoutMillis - (dueMillis - wheel.getMillis()));
+		return elapsedMillis;
+	}
+	/**
+	 * Get the time the timer counts to.
+	 * @return timeoutMillis The expected time in millisecond.
+	 */
+	public int getTimeoutMillis() {
+		return timeoutMillis;
+	}
+	/**
+	 * Get the object told when the timer runs out.
+	 * @return listener The listener of the timer.
+	 */
+	public TimerListener getListener() {
+		return listener;
 	}
 	/**
 	 * Let timer start working.
 	 */
 	public void start() {
+		if (isRunning)
+			return;
 		isRunning = true;
+		wheel.schedule(this, wheel.getMillis() + timeoutMillis - elapsedMillis);
+	}
+	/**
+	 * Let timer start working with a saved schedule order, like when a saved world is loaded.
+	 * @param sequence The schedule order the timer had when it was saved.
+	 */
+	public void start(long sequence) {
+		if (isRunning)
+			return;
+		isRunning = true;
+		wheel.schedule(this, wheel.getMillis() + timeoutMillis - elapsedMillis, sequence);
 	}
 	/**
 	 * Let timer stop working.
 	 */
 	public void stop() {
+		if (!isRunning)
+			return;
+		elapsedMillis = getElapsedMillis();
 		isRunning = false;
+		wheel.cancel(this);
 	}
 	/**
 	 * Check whether the timer is runing.
@@ -44,25 +105,75 @@ public class Timer {
 	public boolean isRunning() {
 		return isRunning;
 	}
-	/**
-	 * Update the timer for a frame.
-	 * @param millis The time for each frame.
-	 */
-	public void update(int millis) {
-		if (isRunning)
-			elapsedMillis += millis;
-	}
 	/**
 	 * Check whether timer has reached the setting time.
 	 * @return Whether timer has reached the setting time.
 	 */
 	public boolean timeout() {
-		return elapsedMillis >= timeoutMillis;
+		return getElapsedMillis() >= timeoutMillis;
 	}
 	/**
 	 * Reset timer to 0.
 	 */
 	public void reset() {
-		elapsedMillis = INITIAL_TIMER_VALUE;
+		setElapsedMillis(INITIAL_TIMER_VALUE);
+	}
+	/**
+	 * Stop the timer at its timeout and tell the listener. Only called by the timer wheel.
+	 */
+	public void expire() {
+		isRunning = false;
+		elapsedMillis = timeoutMillis;
+		listener.timerExpired(this);
+	}
+	/**
+	 * Get the wheel time the running timer runs out at.
+	 * @return dueMillis The due time in millisecond.
+	 */
+	public long getDueMillis() {
+		return dueMillis;
+	}
+	/**
+	 * Get the order the timer was scheduled in, timers due at the same time run out in this order.
+	 * @return sequence The schedule order.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+	/**
+	 * Set when the timer runs out and its schedule order. Only called by the timer wheel.
+	 * @param dueMillis The due time in millisecond.
+	 * @param sequence The schedule order.
+	 */
+	public void setSchedule(long dueMillis, long sequence) {
+		this.dueMillis = dueMillis;
+		this.sequence = sequence;
+	}
+	/**
+	 * Get the wheel slot the timer is kept in.
+	 * @return slot The slot, NOT_SCHEDULED if the timer is not on the wheel.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	/**
+	 * Set the wheel slot the timer is kept in. Only called by the timer wheel.
+	 * @param slot The slot.
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+	//Links to the neighbouring timers in the same wheel slot, only used by the timer wheel.
+	Timer getPrevious() {
+		return previous;
+	}
+	void setPrevious(Timer previous) {
+		this.previous = previous;
+	}
+	Timer getNext() {
+		return next;
+	}
+	void setNext(Timer next) {
+		this.next = next;
 	}
 }
@@ -0,0 +1,11 @@
+/**
+ * Allow object to be told when its timers run out.
+ */
+public interface TimerListener {
+	/**
+	 * Called by the timer wheel when a timer of this object has counted to its timeout.
+	 * The timer is already stopped, with the timeout as its elapsed time.
+	 * @param timer The timer which ran out.
+	 */
+	public void timerExpired(Timer timer);
+}
@@ -0,0 +1,249 @@
+/**
+ * Hierarchical timer wheel which runs out the timers of a world.
+ * The lowest level has a slot for each millisecond of the current 64 milliseconds, each higher level a slot
+ * for 64 slots of the level below. A timer is kept in the lowest level whose range covers its due time, and is
+ * moved down a level when the wheel reaches its slot, so advancing the wheel only touches timers about to run out.
+ * Timers due beyond the highest level wait in an overflow slot.
+ */
+public class TimerWheel {
+	private static final int LEVEL_BITS = 6;
+	private static final int SLOTS_PER_LEVEL = 1 << LEVEL_BITS;
+	private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+	private static final int LEVELS = 5;
+	private static final int OVERFLOW_SLOT = LEVELS * SLOTS_PER_LEVEL;
+	private static final int INITIAL_EXPIRED_CAPACITY = 64;
+
+	private long millis = 0;
+	private long nextSequence = 0;
+	private int size = 0;
+	//The first timer of each slot, the others are linked through the timers.
+	private Timer[] slots = new Timer[OVERFLOW_SLOT + 1];
+	//A bit for each slot of the lowest level holding a timer, so advancing skips the empty slots.
+	private long lowestLevelOccupied = 0;
+	//The timers run out while advancing, reused between advances.
+	private Timer[] expired = new Timer[INITIAL_EXPIRED_CAPACITY];
+	private int expiredCount = 0;
+
+	/**
+	 * Get the time the wheel has advanced to.
+	 * @return millis The wheel time in millisecond.
+	 */
+	public long getMillis() {
+		return millis;
+	}
+	/**
+	 * Get the number of scheduled timers.
+	 * @return size The number of running timers.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Get the schedule order the next scheduled timer gets.
+	 * @return nextSequence The next schedule order.
+	 */
+	public long getNextSequence() {
+		return nextSequence;
+	}
+	/**
+	 * Set the schedule order the next scheduled timer gets, like when a saved world is loaded.
+	 * @param nextSequence The next schedule order.
+	 */
+	public void setNextSequence(long nextSequence) {
+		this.nextSequence = nextSequence;
+	}
+	/**
+	 * Schedule a timer to run out at a given wheel time. Called by Timer.start.
+	 * @param timer The timer, which must not be scheduled already.
+	 * @param dueMillis The wheel time the timer runs out at, times already passed run out on the next advance.
+	 */
+	public void schedule(Timer timer, long dueMillis) {
+		schedule(timer, dueMillis, nextSequence++);
+	}
+	/**
+	 * Schedule a timer with a given schedule order.
+	 * @param timer The timer, which must not be scheduled already.
+	 * @param dueMillis The wheel time the timer runs out at.
+	 * @param sequence The schedule order among the timers due at the same time.
+	 */
+	public void schedule(Timer timer, long dueMillis, long sequence) {
+		timer.setSchedule(Math.max(dueMillis, millis + 1), sequence);
+		place(timer);
+		size++;
+	}
+	/**
+	 * Take a scheduled timer off the wheel. Called by Timer.stop.
+	 * @param timer The timer.
+	 */
+	public void cancel(Timer timer) {
+		if (timer.getSlot() == Timer.NOT_SCHEDULED)
+			return;
+		unlink(timer);
+		size--;
+	}
+	/**
+	 * Get the time until the next timer runs out, so a world with nothing else happening can skip to it.
+	 * @return The time in millisecond, or -1 if no timer is running.
+	 */
+	public long getMillisToNextExpiry() {
+		if (size == 0)
+			return -1;
+		//The lowest level with a timer holds the earliest ones, in its first slot after the current time.
+		for (int level = 0; level < LEVELS; level++) {
+			int current = indexOf(millis, level);
+			for (int i = 0; i < SLOTS_PER_LEVEL; i++) {
+				Timer first = slots[level * SLOTS_PER_LEVEL + ((current + i) & SLOT_MASK)];
+				if (first != null)
+					return earliestDue(first) - millis;
+			}
+		}
+		return earliestDue(slots[OVERFLOW_SLOT]) - millis;
+	}
+	/**
+	 * Advance the wheel time and run out every timer due by then, in the order of their due time.
+	 * Timers running out on the same millisecond expire in the order they were scheduled in.
+	 * The wheel only stops at the milliseconds with a timer due and where the lowest level wraps,
+	 * so advancing over a long time without timers costs about one step for every 64 milliseconds.
+	 * @param delta Time passed since last advance (milliseconds).
+	 */
+	public void advance(long delta) {
+		long target = millis + delta;
+		while (millis < target) {
+			millis = nextStop(Math.min(target, (millis & ~SLOT_MASK) + SLOTS_PER_LEVEL));
+			if (indexOf(millis, 0) == 0)
+				cascade(1);
+			int slot = indexOf(millis, 0);
+			int firstOfMillis = expiredCount;
+			Timer timer = slots[slot];
+			while (timer != null) {
+				Timer next = timer.getNext();
+				unlink(timer);
+				size--;
+				addExpired(timer);
+				timer = next;
+			}
+			sortBySequence(firstOfMillis, expiredCount);
+		}
+		//Expire after advancing, so timers started by the listeners are scheduled from the new time.
+		for (int i = 0; i < expiredCount; i++) {
+			Timer timer = expired[i];
+			expired[i] = null;
+			timer.expire();
+		}
+		expiredCount = 0;
+	}
+	//Get the first time after the current one with a timer due in the lowest level, or a limit within its current round.
+	private long nextStop(long limit) {
+		int from = indexOf(millis, 0) + 1;
+		if (from == SLOTS_PER_LEVEL)
+			return limit;
+		long ahead = lowestLevelOccupied & (-1L << from);
+		if (ahead == 0)
+			return limit;
+		return Math.min(limit, (millis & ~SLOT_MASK) + Long.numberOfTrailingZeros(ahead));
+	}
+	//Move the timers of the current slot of a level into the levels below, when the level below wraps.
+	private void cascade(int level) {
+		if (level >= LEVELS) {
+			replaceAll(OVERFLOW_SLOT);
+			return;
+		}
+		int index = indexOf(millis, level);
+		if (index == 0)
+			cascade(level + 1);
+		replaceAll(level * SLOTS_PER_LEVEL + index);
+	}
+	private void replaceAll(int slot) {
+		Timer timer = slots[slot];
+		slots[slot] = null;
+		while (timer != null) {
+			Timer next = timer.getNext();
+			timer.setPrevious(null);
+			timer.setNext(null);
+			place(timer);
+			timer = next;
+		}
+	}
+	//Put a timer into the lowest level whose current range covers its due time.
+	private void place(Timer timer) {
+		long due = Math.max(timer.getDueMillis(), millis);
+		int slot = OVERFLOW_SLOT;
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = LEVEL_BITS * (level + 1);
+			if ((due >>> shift) == (millis >>> shift)) {
+				slot = level * SLOTS_PER_LEVEL + indexOf(due, level);
+				break;
+			}
+		}
+		if (slot < SLOTS_PER_LEVEL)
+			lowestLevelOccupied |= 1L << slot;
+		Timer first = slots[slot];
+		timer.setSlot(slot);
+		timer.setPrevious(null);
+		timer.setNext(first);
+		if (first != null)
+			first.setPrevious(timer);
+		slots[slot] = timer;
+	}
+	private void unlink(Timer timer) {
+		Timer previous = timer.getPrevious();
+		Timer next = timer.getNext();
+		if (previous == null) {
+			slots[timer.getSlot()] = next;
+			if (next == null && timer.getSlot() < SLOTS_PER_LEVEL)
+				lowestLevelOccupied &= ~(1L << timer.getSlot());
+		} else
+			previous.setNext(next);
+		if (next != null)
+			next.setPrevious(previous);
+		timer.setPrevious(null);
+		timer.setNext(null);
+		timer.setSlot(Timer.NOT_SCHEDULED);
+	}
+	private void addExpired(Timer timer) {
+		if (expiredCount == expired.length) {
+			Timer[] grown = new Timer[expired.length * 2];
+			System.arraycopy(expired, 0, grown, 0, expiredCount);
+			expired = grown;
+		}
+		expired[expiredCount++] = timer;
+	}
+	//Heap sort a range of the expired timers by schedule order, without allocating.
+	private void sortBySequence(int from, int to) {
+		int count = to - from;
+		for (int i = count / 2 - 1; i >= 0; i--) {
+			siftDown(from, i, count);
+		}
+		for (int end = count - 1; end > 0; end--) {
+			Timer largest = expired[from];
+			expired[from] = expired[from + end];
+			expired[from + end] = largest;
+			siftDown(from, 0, end);
+		}
+	}
+	private void siftDown(int from, int node, int count) {
+		while (true) {
+			int child = node * 2 + 1;
+			if (child >= count)
+				return;
+			if (child + 1 < count && expired[from + child + 1].getSequence() > expired[from + child].getSequence())
+				child++;
+			if (expired[from + node].getSequence() >= expired[from + child].getSequence())
+				return;
+			Timer swap = expired[from + node];
+			expired[from + node] = expired[from + child];
+			expired[from + child] = swap;
+			node = child;
+		}
+	}
+	private static long earliestDue(Timer timer) {
+		long earliest = Long.MAX_VALUE;
+		for (; timer != null; timer = timer.getNext()) {
+			earliest = Math.min(earliest, timer.getDueMillis());
+		}
+		return earliest;
+	}
+	private static int indexOf(long time, int level) {
+		return (int)(time >>> (LEVEL_BITS * level)) & SLOT_MASK;
+	}
+}
@@ -1,5 +1,6 @@
+import java.io.IOException;
+
 import org.newdawn.slick.Graphics;
-import org.newdawn.slick.Input;
 
 /**
  * Child Class of Unit.
@@ -14,7 +15,6 @@ public class Truck extends Unit implements Destructible {
 	//To make the menuItem index be corresponding to the menu input index.
 	private static String[] menuItems = new String[]{"", "CommandCentre"};
 	private static final int CREATE_COMMANDCENTRE_INDEX = 1;
-	private boolean isDestroyed;
 
 	/**
 	 * Constructor. See details in parent Unit class.
@@ -24,16 +24,6 @@ public class Truck extends Unit implements Destructible {
 	public Truck(World world, Position mapPosition) {
 		super(world, mapPosition, IMAGE_PATH, TRUCK_SPEED);
 		setCanBuild(true);
-		isDestroyed = false;
-	}
-	
-	/**
-	 *Update behaviour in the world. See details in parent Unit class.
-	 */
-	@Override
-	public void update(Input input, int delta, int mouseButton, Position clickPos) {
-		if (!isDestroyed)
-			super.update(input, delta, mouseButton, clickPos);
 	}
 	
 	/**
@@ -57,12 +47,29 @@ public class Truck extends Unit implements Destructible {
 		destroy();
 	}
 	
+	/**
+	 * Write whether the truck is destroyed. See details in parent class.
+	 */
+	@Override
+	public void writeState(SnapshotWriter out) throws IOException {
+		super.writeState(out);
+		out.putBoolean(isDestroyed());
+	}
+	/**
+	 * Read whether the truck is destroyed. See details in parent class.
+	 */
+	@Override
+	public void readState(SnapshotReader in) {
+		super.readState(in);
+		getStore().setMode(getStoreSlot(), UnitStore.DESTROYED, in.getBoolean());
+	}
+	
 	/**
 	 * Render the truck.
 	 */
 	@Override
-	public void render() {
-		if (!isDestroyed) super.render();
+	public void render(SpriteBatch batch) {
+		if (!isDestroyed()) super.render(batch);
 	}
 
 	/**
@@ -74,20 +81,24 @@ public class Truck extends Unit implements Destructible {
 	}
 
 	/**
-	 * Destroy the truck.
+	 * Destroy the truck. It is removed from the world at the end of the update.
 	 */
 	@Override
 	public void destroy() {
 		deselect();
-		isDestroyed = true;	
+		if (!isDestroyed()) {
+			//The unit store stops moving the truck, which is removed from the world at the end of the update.
+			getStore().setMode(getStoreSlot(), UnitStore.DESTROYED, true);
+			getWorld().destroy(this);
+		}
 	}
 
 	/**
 	 * Check whether the truck is destroyed.
-	 *@return Whether the truck is destroyed.
+	 *@return Whether the truck is destroyed, which it also is once it has left the unit store.
 	 */
 	@Override
 	public boolean isDestroyed() {
-		return isDestroyed;
+		return getStoreSlot() == UnitStore.NOT_STORED || getStore().hasMode(getStoreSlot(), UnitStore.DESTROYED);
 	}
 }
@@ -1,12 +1,15 @@
+import java.io.IOException;
+
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
-import org.newdawn.slick.Input;
 /**
  * Parent class for Truck, Scout, Builder, Engineer.
  * Handles movement, select, create buildings, update and rendering.
+ * The position, target, speed, flags and route are kept in the UnitStore of the world, read through the unit's slot,
+ * and the store moves the units. A unit object only keeps what the store does not update every frame.
  */
-public class Unit extends GameObject implements Movable , Selectable {
+public class Unit extends GameObject implements Movable , Selectable, TimerListener {
 	/**The menu input when key 1 pressed */
 	public static final int KEY_1_INDEX = 1;
     /**The radius surround a unit to consider whether the unit is selected*/
@@ -21,22 +24,13 @@ public class Unit extends GameObject implements Movable , Selectable {
     private static String[] menuItems;
     //Indicate no item in the item menu is chosen to be created
     private static final int MENU_NO_CHOICE = 0;
-    private int delta;
     //Initially no objects should be created
     private int menuInput = MENU_NO_CHOICE;
 
 	private static Image highlightImage = null;
-	//Status which presents whether the unit can create new buildings.
-	private boolean canBuild;
 	//The time when the building starts to be built
 	private int buildingMillis = 0;
 	private Timer buildingTimer;
-	private String creatingBuildingType;
-
-	private Position targetPosition;
-	
-	private boolean selected = false;
-	private double speed;
 	
 	/**
 	 * Initialize the unit with world, position, image and speed
@@ -47,29 +41,50 @@ public class Unit extends GameObject implements Movable , Selectable {
 	 */
 	public Unit(World world, Position mapPosition, String imagePath,  double speed) {
 		super(world, mapPosition, imagePath);
-		this.speed = speed;
-		targetPosition = getPos();
-		try {
-			if (highlightImage == null) highlightImage = new Image(HIGHLIGHT_IMAGE_PATH);
-		} catch (SlickException e) {
-			e.printStackTrace();
-		}
+		setPositionStorage(world.getUnitStore().add(this, getPos().getX(), getPos().getY(), speed));
 		buildingTimer = null;
-		creatingBuildingType = "";
 	}
 	/**
 	 * Set the canBuild status.
 	 * @param canBuild The expecting status of the unit for canBuild
 	 */
 	public void setCanBuild(boolean canBuild) {
-		this.canBuild = canBuild;
+		getStore().setFlag(getStoreSlot(), UnitStore.CAN_BUILD, canBuild);
 	}
 	/**
 	 * Get whether this unit can create buildings
 	 * @return canBuild Whether this unit can create buildings.
 	 */
 	public boolean getCanBuild() {
-		return canBuild;
+		return getStore().hasFlag(getStoreSlot(), UnitStore.CAN_BUILD);
+	}
+	/**
+	 * Get the slot of the unit in the unit store of the world.
+	 * @return The slot, UnitStore.NOT_STORED after the unit was removed from the world.
+	 */
+	public int getStoreSlot() {
+		Position pos = getPos();
+		return pos instanceof UnitPosition ? ((UnitPosition)pos).getSlot() : UnitStore.NOT_STORED;
+	}
+	/**
+	 * Get the unit store holding the state of this unit.
+	 * @return The unit store of the world.
+	 */
+	public UnitStore getStore() {
+		return getWorld().getUnitStore();
+	}
+	/**
+	 * Keep the last position of the unit in a position of its own, when it is removed from the store. Only called by the store.
+	 */
+	public void leaveStore() {
+		setPositionStorage(new MapPosition(getPos()));
+	}
+	/**
+	 * Get the timer of the building the unit is creating.
+	 * @return buildingTimer The building timer, null when the unit has not started a building.
+	 */
+	public Timer getBuildingTimer() {
+		return buildingTimer;
 	}
 	/**
 	 * Set the expecting timer for the unit
@@ -115,78 +130,115 @@ public class Unit extends GameObject implements Movable , Selectable {
 	}
 	/**
 	 * Get the target position for movement on the map.
-	 * @return targetPosition The target position for movement on the map.
+	 * @return A copy of the target position for movement on the map.
 	 */
 	public Position getTargetPosition() {
-		return targetPosition;
+		return new MapPosition(getStore().getTargetX(getStoreSlot()), getStore().getTargetY(getStoreSlot()));
 	}
 	/**
 	 * Set target position of the unit.
 	 * @param targetPosition Target position on map.
 	 */
 	public void setTargetPosition(Position targetPosition) {
-		this.targetPosition = targetPosition;
+		setTargetPosition(targetPosition.getX(), targetPosition.getY());
+	}
+	/**
+	 * Set target position of the unit, without a position object.
+	 * @param targetX Target x-position on map.
+	 * @param targetY Target y-position on map.
+	 */
+	public void setTargetPosition(double targetX, double targetY) {
+		getStore().setTarget(getStoreSlot(), targetX, targetY);
+	}
+	/**
+	 * Set a target position which is a source of a distance field, like a command centre.
+	 * The unit walks down the field to it, one array lookup per tile, instead of searching a path.
+	 * @param targetPosition Target position on map.
+	 * @param field The distance field with a source on the tile of the target.
+	 */
+	public void setTargetPosition(Position targetPosition, DistanceField field) {
+		getStore().setTarget(getStoreSlot(), targetPosition.getX(), targetPosition.getY(), field);
 	}
 	
-	/**Update method, look up details in parent class.*/
+	/**
+	 * Write the target, flags, cargo, building progress and route of the unit. See details in parent class.
+	 */
 	@Override
-	public void update(Input input, int delta, int mouseButton, Position clickPos) {
-		if (canBuild) {
-			//Update method for unit which can create building.
-			buildingUnitUpdate(input, delta);
-		}
-		//Update method for all the units.
-		generalUnitUpdate(input, delta, mouseButton, clickPos);
-	}	
+	public void writeState(SnapshotWriter out) throws IOException {
+		UnitStore store = getStore();
+		int slot = getStoreSlot();
+		out.putDouble(store.getTargetX(slot));
+		out.putDouble(store.getTargetY(slot));
+		out.putInt(store.getFlags(slot));
+		out.putInt(store.getCargo(slot));
+		out.putInt(menuInput);
+		out.putInt(buildingMillis);
+		out.putTimer(buildingTimer);
+		store.writeRoute(slot, out);
+	}
+	/**
+	 * Read the state written by writeState. Distance fields are those of the loading world.
+	 */
+	@Override
+	public void readState(SnapshotReader in) {
+		UnitStore store = getStore();
+		int slot = getStoreSlot();
+		double targetX = in.getDouble();
+		double targetY = in.getDouble();
+		store.setTarget(slot, targetX, targetY);
+		store.setFlags(slot, in.getInt());
+		store.setCargo(slot, in.getInt());
+		menuInput = in.getInt();
+		buildingMillis = in.getInt();
+		buildingTimer = in.readOptionalTimer(getWorld().getTimerWheel(), this);
+		store.readRoute(slot, in);
+	}
+	
 	/**
-	 * Update method for unit which can create building.
-	 * @param input The input of the player
+	 * Work out the part of act which only reads the world, before the update runs, for units with the
+	 * UnitStore.ACTS mode. Called for many units at once from several threads, so it must not change
+	 * anything outside the unit's slot. Overridden by the units which act.
 	 * @param delta Time passed since last frame (milliseconds).
 	 */
-	public void buildingUnitUpdate(Input input, int delta) {
-		if (isBuilding()) {
-			buildingTimer.update(delta);
-			if (buildingTimer.timeout()) {
-				addNewBuildingToWorld();
-				afterBuilding();
-			}
-		} else {
-			//If unit is selected and its location is not occupied, it can create building with input KEY_1.
-			if (isSelected() && input.isKeyPressed(Input.KEY_1) && !getWorld().isOccupiedTile(getPos())) {
-				menuInput = KEY_1_INDEX;
-			} else {
-				menuInput = MENU_NO_CHOICE;
-			}			
-			if (menuInput != MENU_NO_CHOICE) {
-				targetPosition = getPos();
-				creatingBuildingType = getBuildingType(menuInput);
-				startBuilding();
-			}
-		}
+	public void planAct(int delta) {
+		
 	}
 	/**
-	 * Update method for all the units.
-	 * @param input The input of the player
+	 * Act on where the unit stands after it has moved, for units with the UnitStore.ACTS mode.
+	 * Overridden by the units which act.
 	 * @param delta Time passed since last frame (milliseconds).
-	 * @param mouseButton Which mouse button did the player click 
-	 * @param clickPos The position of the click.
-	 */
-	public void generalUnitUpdate(Input input, int delta, int mouseButton, Position clickPos) {
-		this.delta = delta;
-		if (mouseButton == Input.MOUSE_LEFT_BUTTON) {
-			if (selected) {
-				deselect();
-			} else {
-				if (clickPos.distance(getPos()) <= SELECTION_AREA_RADIUS) {
-					select();
-				}
-			}
-		} else if (mouseButton == Input.MOUSE_RIGHT_BUTTON) {
-			if (selected && !isBuilding()) {
-				targetPosition = clickPos;
-			}
-		}
-		move(targetPosition);
+	 */
+	public void act(int delta) {
+		
+	}
+	/**Update method, look up details in parent class. The world updates its units through the unit store.*/
+	@Override
+	public void update(int delta) {
+		getStore().update(getStoreSlot(), delta);
+	}	
+	/**
+	 * Let the selected unit create the building of a menu choice. Only called by the world.
+	 * Units which cannot build, are building already or stand on an occupied tile ignore the command.
+	 * @param menuChoice The chosen item of the menu.
+	 */
+	public void commandBuild(int menuChoice) {
+		//While building, the timer wheel of the world tells the unit when the building is finished.
+		if (!getCanBuild() || isBuilding() || getWorld().isOccupiedTile(getPos()))
+			return;
+		menuInput = menuChoice;
+		setTargetPosition(getPos());
+		startBuilding();
+		if (!isBuilding())
+			menuInput = MENU_NO_CHOICE;
+	}
+	/**
+	 * Order the selected unit to walk to a position the player right clicked. Only called by the world.
+	 * A unit which is creating a building stays where it is.
+	 * @param pos The clicked position on the map.
+	 */
+	public void commandMove(Position pos) {
+		if (!isBuilding())
+			setTargetPosition(pos);
 	}
 	/**
 	 * Get the building type with given menuInput. Overrided in child class.
@@ -196,17 +248,25 @@ public class Unit extends GameObject implements Movable , Selectable {
 	public String getBuildingType(int menuInput) {
 		return "";
 	}
+	/**
+	 * Get the type of the building the unit is creating, from the menu choice.
+	 * @return The class name of the building, empty when the unit is not creating one.
+	 */
+	public String getCreatingBuildingType() {
+		return getBuildingType(menuInput);
+	}
 	/**
 	 * Start create building.
 	 */
 	public void startBuilding() {
+		String creatingBuildingType = getCreatingBuildingType();
 		//Build nothing if creatingBuildingType is null.
 		if ("".equals(creatingBuildingType)) 
 			return;
 		int buildingMetalCost = getBuildingMetalCost(creatingBuildingType);
 		if (getWorld().getMetalAmount() >= buildingMetalCost) {
 			getWorld().consumeMetal(buildingMetalCost);
-			buildingTimer = new Timer(getBuildingTimeCost(creatingBuildingType));
+			buildingTimer = new Timer(getWorld().getTimerWheel(), getBuildingTimeCost(creatingBuildingType), this);
 			buildingTimer.start();
 		}
 	}
@@ -241,6 +301,7 @@ public class Unit extends GameObject implements Movable , Selectable {
 	/**Add the building to the matching building list in the world.*/
 	public void addNewBuildingToWorld() {
 		Building newBuilding = null;
+		String creatingBuildingType = getCreatingBuildingType();
 		if (CLASS_NAME_COMMAND_CENTRE.equals(creatingBuildingType)) {
 			newBuilding = new CommandCentre(getWorld(), getPos());
 		} else if (CLASS_NAME_FACTORY.equals(creatingBuildingType)) {
@@ -248,6 +309,17 @@ public class Unit extends GameObject implements Movable , Selectable {
 		}
 		getWorld().addNewBuilding(newBuilding);
 	}
+	/**
+	 * Add the building to the world when the building timer runs out.
+	 * @param timer The building timer.
+	 */
+	@Override
+	public void timerExpired(Timer timer) {
+		if (timer == buildingTimer) {
+			addNewBuildingToWorld();
+			afterBuilding();
+		}
+	}
 	/**Reset the timer and menuInput after creating a building.*/
 	public void afterBuilding() {
 		buildingTimer = null;
@@ -259,20 +331,11 @@ public class Unit extends GameObject implements Movable , Selectable {
 	 */
 	@Override
 	public void move(Position targetPos) {
-		double distanceToTarget = getPos().distance(targetPos);
-		if (distanceToTarget >= Position.DISTANCE_TOLERANCE) {
-			double distanceToMove = Math.min(distanceToTarget, speed * delta);
-			double radian = getPos().radian(targetPos);
-			double dx = distanceToMove*Math.cos(radian);
-			double dy = distanceToMove*Math.sin(radian);
-			//Identify movement in each delta
-			Position movingTo = new Position(getPos().getX()+dx, getPos().getY()+dy);
-			if (!getWorld().isSolidTile(movingTo)) {
-				setPos(movingTo);
-			} else {
-				targetPosition = getPos();
-			}
-		}
+		UnitStore store = getStore();
+		int slot = getStoreSlot();
+		if (targetPos.getX() != store.getTargetX(slot) || targetPos.getY() != store.getTargetY(slot))
+			setTargetPosition(targetPos);
+		store.move(slot, store.getLastDelta());
 	}
 	
 	/**
@@ -281,12 +344,20 @@ public class Unit extends GameObject implements Movable , Selectable {
 	 */
 	@Override
 	public boolean isMoving() {
-		return !getPos().equals(targetPosition);
+		return getStore().isMoving(getStoreSlot());
+	}
+	/**
+	 * Check whether another update would change nothing about the unit: it is not moving,
+	 * and it has already acted on where it stands. Overridden by the units which act.
+	 * @return Whether the unit is settled.
+	 */
+	public boolean isSettled() {
+		return !isMoving();
 	}
 	/**Make the unit be selected and let the camera follow it*/
 	@Override
 	public void select() {
-		selected = true;
+		getStore().setFlag(getStoreSlot(), UnitStore.SELECTED, true);
 		getCamera().setFollowingObject(this);
 		GameObject prevSelectedObj = getWorld().getSelectedObject();
 		//Only select one unit for each time.
@@ -300,25 +371,36 @@ public class Unit extends GameObject implements Movable , Selectable {
 	/**Set selected status to false.*/
 	@Override
 	public void deselect() {
-		selected = false;
+		if (getStoreSlot() != UnitStore.NOT_STORED)
+			getStore().setFlag(getStoreSlot(), UnitStore.SELECTED, false);
 	}
 	/**Check whether the unit is selected.*/
 	@Override
 	public boolean isSelected() {
-		return selected;
+		return getStoreSlot() != UnitStore.NOT_STORED && getStore().hasFlag(getStoreSlot(), UnitStore.SELECTED);
+	}
+	/**Units are drawn above buildings.*/
+	@Override
+	public int getRenderLayer() {
+		return SpriteBatch.UNIT_LAYER;
 	}
 	/**Render the unit on screen, when unit is selected, render highlight image at the same position.*/
 	@Override
-	public void render() {
-		if(selected) {
-		    highlightImage.drawCentered((float)getScreenPos().getX(), (float)getScreenPos().getY());
+	public void render(SpriteBatch batch) {
+		if(isSelected()) {
+			try {
+				if (highlightImage == null) highlightImage = ImageCache.acquire(HIGHLIGHT_IMAGE_PATH);
+			} catch (SlickException e) {
+				e.printStackTrace();
+			}
+		    batch.draw(highlightImage, getScreenX(), getScreenY(), SpriteBatch.UNIT_HIGHLIGHT_LAYER);
 		}
-		super.render();
+		super.render(batch);
 	}
 	/**Render the menu when is selected, other information is in parent class.*/
 	@Override
 	public void renderMenu(Graphics g, String[] menuItems) {
-		if (selected && menuItems != null) {
+		if (isSelected() && menuItems != null) {
 			super.renderMenu(g, menuItems);
 		}
 	}
@@ -0,0 +1,41 @@
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs UnitStore.plan for a range of unit slots on a fork-join pool, splitting the range between threads.
+ * Planning only reads the world, so the units can be planned in any order and at the same time.
+ */
+public class UnitPlanner extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	//Ranges with this many units or fewer are planned on one thread.
+	private static final int BATCH_SIZE = 256;
+
+	private UnitStore store;
+	private int from;
+	private int to;
+	private int delta;
+
+	/**
+	 * Constructor.
+	 * @param store The unit store of the world, which must not change while planning.
+	 * @param from The first slot to plan.
+	 * @param to The slot after the last one to plan.
+	 * @param delta Time passed since last frame (milliseconds).
+	 */
+	public UnitPlanner(UnitStore store, int from, int to, int delta) {
+		this.store = store;
+		this.from = from;
+		this.to = to;
+		this.delta = delta;
+	}
+	@Override
+	protected void compute() {
+		if (to - from <= BATCH_SIZE) {
+			for (int slot = from; slot < to; slot++) {
+				store.plan(slot, delta);
+			}
+		} else {
+			int middle = (from + to) >>> 1;
+			invokeAll(new UnitPlanner(store, from, middle, delta), new UnitPlanner(store, middle, to, delta));
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * The position of a unit, read from and written to the unit's slot in a UnitStore.
+ * It keeps no coordinates of its own: when the unit is removed from the store, the unit keeps
+ * its last position in a MapPosition instead.
+ */
+public class UnitPosition extends Position {
+	private UnitStore store;
+	private int slot;
+
+	/**
+	 * Constructor.
+	 * @param store The store holding the unit.
+	 * @param slot The slot of the unit in the store.
+	 */
+	public UnitPosition(UnitStore store, int slot) {
+		this.store = store;
+		this.slot = slot;
+	}
+	/**
+	 * Get the slot of the unit in the store.
+	 * @return slot The slot, UnitStore.NOT_STORED after the unit was removed.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	/**
+	 * Set the slot of the unit, when the store moves or removes it. Only called by the store.
+	 * @param slot The new slot of the unit.
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+	@Override
+	public double getX() {
+		return store.getX(slot);
+	}
+	@Override
+	public double getY() {
+		return store.getY(slot);
+	}
+	@Override
+	public void set(double x, double y) {
+		store.setPosition(slot, x, y);
+	}
+}
@@ -0,0 +1,613 @@
+import java.io.IOException;
+
+/**
+ * Struct-of-arrays storage for the state of every unit: position, target, speed, flags, cargo, route and
+ * the plan made ahead of the update live in parallel arrays indexed by the unit's slot, and the Unit objects
+ * read them through their slot. The units are moved here too, slot by slot, so walking units are updated
+ * without touching their Unit objects. Slots are kept dense by moving the last unit into the slot of a removed one.
+ */
+public class UnitStore {
+	/**Slot of a unit which is not stored.*/
+	public static final int NOT_STORED = -1;
+	/**Flag of a selected unit.*/
+	public static final int SELECTED = 1;
+	/**Flag of a unit which can create buildings.*/
+	public static final int CAN_BUILD = 2;
+	/**Flag of an engineer working a resource.*/
+	public static final int MINING_MODE = 4;
+	/**Flag of an engineer carrying metal rather than unobtainium.*/
+	public static final int CARRYING_METAL = 8;
+	/**Mode of a unit which acts on where it stands, like an engineer. Unit.act is called after the unit has moved,
+	 * while it stands still or carries cargo.*/
+	public static final int ACTS = 1;
+	/**Mode of a destroyed unit, which no longer moves or acts until it is removed at the end of the update.*/
+	public static final int DESTROYED = 2;
+
+	//Mode bits of the route and of the plan made ahead of the update. The modes are kept apart from the flags,
+	//which are saved and hashed as they are.
+	private static final int WALKING_FIELD = 4;
+	private static final int PLANNED = 8;
+	private static final int PLANNED_STEP = 16;
+	private static final int PLANNED_BLOCKED = 32;
+	private static final int PLANNED_WAYPOINT_REACHED = 64;
+	private static final int PLANNED_RESOURCE = 128;
+	private static final int MOVE_PLAN = PLANNED | PLANNED_STEP | PLANNED_BLOCKED | PLANNED_WAYPOINT_REACHED;
+	private static final int PLAN = MOVE_PLAN | PLANNED_RESOURCE;
+	//How a saved unit was walking to its target: straight, along a path or down a distance field.
+	private static final int SAVED_NO_PATH = 0;
+	private static final int SAVED_PATH = 1;
+	private static final int SAVED_FIELD = 2;
+	private static final int NO_VERSION = -1;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private World world;
+	private int size = 0;
+	//The frame time of the last update, used by units moved from outside the update.
+	private int lastDelta = 0;
+	private Unit[] units;
+	private UnitPosition[] positions;
+	private double[] x;
+	private double[] y;
+	private double[] targetX;
+	private double[] targetY;
+	//Changes whenever the target is set, so routes planned for an older target can be told apart.
+	private int[] targetVersion;
+	private double[] speed;
+	private int[] flags;
+	private int[] modes;
+	private int[] cargo;
+	//The distance field the target is a source of, null when the target is not a source.
+	private DistanceField[] targetFields;
+	//The route to the target of routeTargetVersions: the tiles of a path and the index of the next one,
+	//or with WALKING_FIELD the next node down the target field. Without a path the unit walks straight.
+	private int[][] paths;
+	private int[] routeSteps;
+	private int[] routeTargetVersions;
+	private int[] routeFieldVersions;
+	//The next step worked out by plan, taken by the next move unless the target or position changed since.
+	private double[] plannedX;
+	private double[] plannedY;
+	//The handle of the resource an acting unit stands on, looked up by plan.
+	private long[] plannedResources;
+
+	/**
+	 * Constructor. Create an empty store.
+	 * @param world The world of the units, whose terrain and path finder they walk with.
+	 */
+	public UnitStore(World world) {
+		this.world = world;
+		allocate(INITIAL_CAPACITY);
+	}
+	/**
+	 * Get the number of stored units.
+	 * @return size The number of units.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Get the unit stored in a slot.
+	 * @param slot The slot of the unit.
+	 * @return The unit.
+	 */
+	public Unit getUnit(int slot) {
+		return units[slot];
+	}
+	/**
+	 * Make room for a number of units, like before adding many units at once.
+	 * @param capacity The number of units the store can hold without growing.
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > units.length)
+			allocate(capacity);
+	}
+	/**
+	 * Store a new unit standing still at a position.
+	 * @param unit The unit to store.
+	 * @param startX The x-position of the unit.
+	 * @param startY The y-position of the unit.
+	 * @param unitSpeed The moving speed of the unit.
+	 * @return The position of the unit, which reads and writes the store.
+	 */
+	public UnitPosition add(Unit unit, double startX, double startY, double unitSpeed) {
+		if (size == units.length)
+			allocate(size * 2);
+		int slot = size++;
+		units[slot] = unit;
+		positions[slot] = new UnitPosition(this, slot);
+		x[slot] = startX;
+		y[slot] = startY;
+		targetX[slot] = startX;
+		targetY[slot] = startY;
+		targetVersion[slot] = 0;
+		speed[slot] = unitSpeed;
+		flags[slot] = 0;
+		modes[slot] = 0;
+		cargo[slot] = 0;
+		targetFields[slot] = null;
+		paths[slot] = null;
+		routeSteps[slot] = 0;
+		routeTargetVersions[slot] = NO_VERSION;
+		routeFieldVersions[slot] = 0;
+		plannedResources[slot] = EntityRegistry.NO_HANDLE;
+		return positions[slot];
+	}
+	/**
+	 * Remove a unit by moving the last unit into its slot. The unit keeps its last position in a position of its own.
+	 * @param unit The unit to remove.
+	 */
+	public void remove(Unit unit) {
+		int slot = unit.getStoreSlot();
+		if (slot == NOT_STORED || units[slot] != unit)
+			return;
+		unit.leaveStore();
+		positions[slot].setSlot(NOT_STORED);
+		int last = --size;
+		if (slot != last) {
+			units[slot] = units[last];
+			positions[slot] = positions[last];
+			positions[slot].setSlot(slot);
+			x[slot] = x[last];
+			y[slot] = y[last];
+			targetX[slot] = targetX[last];
+			targetY[slot] = targetY[last];
+			targetVersion[slot] = targetVersion[last];
+			speed[slot] = speed[last];
+			flags[slot] = flags[last];
+			modes[slot] = modes[last];
+			cargo[slot] = cargo[last];
+			targetFields[slot] = targetFields[last];
+			paths[slot] = paths[last];
+			routeSteps[slot] = routeSteps[last];
+			routeTargetVersions[slot] = routeTargetVersions[last];
+			routeFieldVersions[slot] = routeFieldVersions[last];
+			plannedX[slot] = plannedX[last];
+			plannedY[slot] = plannedY[last];
+			plannedResources[slot] = plannedResources[last];
+		}
+		units[last] = null;
+		positions[last] = null;
+		targetFields[last] = null;
+		paths[last] = null;
+	}
+	/**
+	 * Get the x-position of a unit.
+	 * @param slot The slot of the unit.
+	 * @return The x-position on the map.
+	 */
+	public double getX(int slot) {
+		return x[slot];
+	}
+	/**
+	 * Get the y-position of a unit.
+	 * @param slot The slot of the unit.
+	 * @return The y-position on the map.
+	 */
+	public double getY(int slot) {
+		return y[slot];
+	}
+	/**
+	 * Move a unit to a point, dropping the plan made for the old position.
+	 * @param slot The slot of the unit.
+	 * @param newX The x-position on the map.
+	 * @param newY The y-position on the map.
+	 */
+	public void setPosition(int slot, double newX, double newY) {
+		x[slot] = newX;
+		y[slot] = newY;
+		modes[slot] &= ~PLAN;
+	}
+	/**
+	 * Get the x-position a unit moves to.
+	 * @param slot The slot of the unit.
+	 * @return The target x-position on the map.
+	 */
+	public double getTargetX(int slot) {
+		return targetX[slot];
+	}
+	/**
+	 * Get the y-position a unit moves to.
+	 * @param slot The slot of the unit.
+	 * @return The target y-position on the map.
+	 */
+	public double getTargetY(int slot) {
+		return targetY[slot];
+	}
+	/**
+	 * Get the number of times the target of a unit has been set.
+	 * @param slot The slot of the unit.
+	 * @return The target version.
+	 */
+	public int getTargetVersion(int slot) {
+		return targetVersion[slot];
+	}
+	/**
+	 * Set the point a unit moves to, dropping the plan made for the old target.
+	 * @param slot The slot of the unit.
+	 * @param newX The x-position on the map.
+	 * @param newY The y-position on the map.
+	 */
+	public void setTarget(int slot, double newX, double newY) {
+		setTarget(slot, newX, newY, null);
+	}
+	/**
+	 * Set the point a unit moves to, which may be a source of a distance field, like a command centre.
+	 * The unit then walks down the field to it, one array lookup per tile, instead of searching a path.
+	 * @param slot The slot of the unit.
+	 * @param newX The x-position on the map.
+	 * @param newY The y-position on the map.
+	 * @param field The distance field with a source on the tile of the target, or null.
+	 */
+	public void setTarget(int slot, double newX, double newY, DistanceField field) {
+		targetX[slot] = newX;
+		targetY[slot] = newY;
+		targetVersion[slot]++;
+		targetFields[slot] = field;
+		modes[slot] &= ~PLAN;
+	}
+	/**
+	 * Get the moving speed of a unit.
+	 * @param slot The slot of the unit.
+	 * @return The speed in pixels per millisecond.
+	 */
+	public double getSpeed(int slot) {
+		return speed[slot];
+	}
+	/**
+	 * Check a flag of a unit.
+	 * @param slot The slot of the unit.
+	 * @param flag One of the flag constants.
+	 * @return Whether the flag is set.
+	 */
+	public boolean hasFlag(int slot, int flag) {
+		return (flags[slot] & flag) != 0;
+	}
+	/**
+	 * Set or clear a flag of a unit.
+	 * @param slot The slot of the unit.
+	 * @param flag One of the flag constants.
+	 * @param value Whether the flag is set.
+	 */
+	public void setFlag(int slot, int flag, boolean value) {
+		if (value)
+			flags[slot] |= flag;
+		else
+			flags[slot] &= ~flag;
+	}
+	/**
+	 * Get all the flags of a unit at once, like for saving them.
+	 * @param slot The slot of the unit.
+	 * @return The flag constants which are set, or-ed together.
+	 */
+	public int getFlags(int slot) {
+		return flags[slot];
+	}
+	/**
+	 * Replace all the flags of a unit.
+	 * @param slot The slot of the unit.
+	 * @param unitFlags The flag constants to set, or-ed together.
+	 */
+	public void setFlags(int slot, int unitFlags) {
+		flags[slot] = unitFlags;
+	}
+	/**
+	 * Check a mode of a unit.
+	 * @param slot The slot of the unit.
+	 * @param mode ACTS or DESTROYED.
+	 * @return Whether the mode is set.
+	 */
+	public boolean hasMode(int slot, int mode) {
+		return (modes[slot] & mode) != 0;
+	}
+	/**
+	 * Set or clear a mode of a unit.
+	 * @param slot The slot of the unit.
+	 * @param mode ACTS or DESTROYED.
+	 * @param value Whether the mode is set.
+	 */
+	public void setMode(int slot, int mode, boolean value) {
+		if (value)
+			modes[slot] |= mode;
+		else
+			modes[slot] &= ~mode;
+	}
+	/**
+	 * Get the amount of resource a unit carries.
+	 * @param slot The slot of the unit.
+	 * @return The carried amount.
+	 */
+	public int getCargo(int slot) {
+		return cargo[slot];
+	}
+	/**
+	 * Set the amount of resource a unit carries.
+	 * @param slot The slot of the unit.
+	 * @param amount The carried amount.
+	 */
+	public void setCargo(int slot, int amount) {
+		cargo[slot] = amount;
+	}
+	/**
+	 * Check whether the resource a unit stands on was looked up by plan for this update.
+	 * @param slot The slot of the unit.
+	 * @return Whether there is a planned resource, which may be none.
+	 */
+	public boolean hasPlannedResource(int slot) {
+		return (modes[slot] & PLANNED_RESOURCE) != 0;
+	}
+	/**
+	 * Get the resource a unit stands on, looked up by plan.
+	 * @param slot The slot of the unit.
+	 * @return The handle of the resource, EntityRegistry.NO_HANDLE when there is none.
+	 */
+	public long getPlannedResource(int slot) {
+		return plannedResources[slot];
+	}
+	/**
+	 * Keep the resource a unit stands on for this update. Only called by Unit.planAct.
+	 * @param slot The slot of the unit.
+	 * @param handle The handle of the resource, EntityRegistry.NO_HANDLE when there is none.
+	 */
+	public void setPlannedResource(int slot, long handle) {
+		plannedResources[slot] = handle;
+		modes[slot] |= PLANNED_RESOURCE;
+	}
+	/**
+	 * Get the frame time of the last update, which a unit moved from outside the update steps with.
+	 * @return lastDelta Time passed in the last frame (milliseconds).
+	 */
+	public int getLastDelta() {
+		return lastDelta;
+	}
+
+	/**
+	 * Update a unit for a frame: take its step towards the target, then let it act if it has the ACTS mode.
+	 * Only units which act are read through their Unit objects.
+	 * @param slot The slot of the unit.
+	 * @param delta Time passed since last frame (milliseconds).
+	 */
+	public void update(int slot, int delta) {
+		lastDelta = delta;
+		if ((modes[slot] & DESTROYED) == 0) {
+			move(slot, delta);
+			//A moving unit without cargo has nothing to act on.
+			if ((modes[slot] & ACTS) != 0 && (cargo[slot] > 0 || !isMoving(slot)))
+				units[slot].act(delta);
+		}
+		//The plan is only good for this update.
+		modes[slot] &= ~PLAN;
+	}
+	/**
+	 * Work out the part of the next update of a unit which only reads the world, before the update runs.
+	 * Called for many units at once from several threads, so it only writes the slot of the unit.
+	 * @param slot The slot of the unit.
+	 * @param delta Time passed since last frame (milliseconds).
+	 */
+	public void plan(int slot, int delta) {
+		planMove(slot, delta);
+		if ((modes[slot] & ACTS) != 0)
+			units[slot].planAct(delta);
+	}
+	/**
+	 * Take one step of a unit towards its target, using the planned step if it is still valid.
+	 * @param slot The slot of the unit.
+	 * @param delta Time passed since last frame (milliseconds).
+	 */
+	public void move(int slot, int delta) {
+		if ((modes[slot] & PLANNED) == 0)
+			planMove(slot, delta);
+		int plan = modes[slot];
+		modes[slot] &= ~MOVE_PLAN;
+		if ((plan & PLANNED_STEP) == 0)
+			return;
+		if ((plan & PLANNED_BLOCKED) != 0) {
+			setTarget(slot, x[slot], y[slot]);
+			return;
+		}
+		double fromX = x[slot];
+		double fromY = y[slot];
+		x[slot] = plannedX[slot];
+		y[slot] = plannedY[slot];
+		//The grid only needs the unit object when the unit crosses into another cell.
+		SpatialGrid<Unit> grid = world.getUnitGrid();
+		if (grid.cellIndexOf(fromX, fromY) != grid.cellIndexOf(x[slot], y[slot]))
+			grid.update(units[slot]);
+		world.getProximityTriggers().unitMoved(units[slot], fromX, fromY, x[slot], y[slot]);
+		if ((plan & PLANNED_WAYPOINT_REACHED) != 0 && (plan & WALKING_FIELD) != 0)
+			routeSteps[slot] = targetFields[slot].nextNode(routeSteps[slot]);
+		else if ((plan & PLANNED_WAYPOINT_REACHED) != 0)
+			routeSteps[slot]++;
+	}
+	/**
+	 * Check whether a unit is away from its target.
+	 * @param slot The slot of the unit.
+	 * @return Whether the unit is moving.
+	 */
+	public boolean isMoving(int slot) {
+		if (world.isFixedPointMovement())
+			return !FixedPoint.isWithinTolerance(FixedPoint.toFixed(x[slot]), FixedPoint.toFixed(y[slot]),
+					FixedPoint.toFixed(targetX[slot]), FixedPoint.toFixed(targetY[slot]));
+		return distanceSquared(x[slot], y[slot], targetX[slot], targetY[slot])
+				>= Position.DISTANCE_TOLERANCE * Position.DISTANCE_TOLERANCE;
+	}
+
+	/**
+	 * Write the route of a unit, after its target.
+	 * @param slot The slot of the unit.
+	 * @param out The snapshot being written.
+	 * @throws IOException If the snapshot cannot be written.
+	 */
+	public void writeRoute(int slot, SnapshotWriter out) throws IOException {
+		out.putBoolean(targetFields[slot] != null);
+		//A route planned for an older target or field is planned again after loading, as it would have been.
+		boolean routeCurrent = routeTargetVersions[slot] == targetVersion[slot];
+		if ((modes[slot] & WALKING_FIELD) != 0) {
+			out.putByte(SAVED_FIELD);
+			out.putBoolean(routeCurrent && routeFieldVersions[slot] == targetFields[slot].getVersion());
+		} else {
+			out.putByte(paths[slot] != null ? SAVED_PATH : SAVED_NO_PATH);
+			out.putBoolean(routeCurrent);
+			out.putIntArray(paths[slot]);
+		}
+		out.putInt(routeSteps[slot]);
+	}
+	/**
+	 * Read the route written by writeRoute, after the target has been set. Distance fields are those of the loading world.
+	 * @param slot The slot of the unit.
+	 * @param in The snapshot being read.
+	 */
+	public void readRoute(int slot, SnapshotReader in) {
+		DistanceField field = world.getCommandCentreField();
+		targetFields[slot] = in.getBoolean() ? field : null;
+		int routeMode = in.getByte();
+		routeTargetVersions[slot] = in.getBoolean() ? targetVersion[slot] : NO_VERSION;
+		if (routeMode == SAVED_FIELD) {
+			modes[slot] |= WALKING_FIELD;
+			paths[slot] = null;
+			routeFieldVersions[slot] = field.getVersion();
+		} else {
+			modes[slot] &= ~WALKING_FIELD;
+			paths[slot] = in.getIntArray();
+		}
+		routeSteps[slot] = in.getInt();
+	}
+
+	//Work out the next step towards the target without taking it. Only reads the terrain and path finder,
+	//so it can run in parallel with other units.
+	private void planMove(int slot, int delta) {
+		double fromX = x[slot];
+		double fromY = y[slot];
+		double toX = targetX[slot];
+		double toY = targetY[slot];
+		boolean fixedPoint = world.isFixedPointMovement();
+		boolean step = fixedPoint ? !FixedPoint.isWithinTolerance(FixedPoint.toFixed(fromX), FixedPoint.toFixed(fromY),
+				FixedPoint.toFixed(toX), FixedPoint.toFixed(toY))
+				: distanceSquared(fromX, fromY, toX, toY) >= Position.DISTANCE_TOLERANCE * Position.DISTANCE_TOLERANCE;
+		if (!step) {
+			modes[slot] = (modes[slot] & ~MOVE_PLAN) | PLANNED;
+			return;
+		}
+		//Plan again when the target changed, or a source was added to the field being walked down.
+		if (routeTargetVersions[slot] != targetVersion[slot]
+				|| ((modes[slot] & WALKING_FIELD) != 0 && targetFields[slot].getVersion() != routeFieldVersions[slot])) {
+			planPath(slot, toX, toY);
+		}
+		//Walk to the centre of the next tile on the route, and straight to the target on the last tile.
+		double waypointX = toX;
+		double waypointY = toY;
+		int waypoint = nextWaypoint(slot);
+		boolean followingPath = waypoint != DistanceField.NO_NODE;
+		if (followingPath) {
+			waypointX = tileCentreX(waypoint);
+			waypointY = tileCentreY(waypoint);
+		}
+		boolean waypointReached;
+		if (fixedPoint) {
+			waypointReached = planFixedPointStep(slot, waypointX, waypointY, speed[slot] * delta, followingPath);
+		} else {
+			double distanceToWaypoint = Math.sqrt(distanceSquared(fromX, fromY, waypointX, waypointY));
+			double distanceToMove = Math.min(distanceToWaypoint, speed[slot] * delta);
+			double radian = Math.atan2(waypointY - fromY, waypointX - fromX);
+			//Identify movement in each delta
+			plannedX[slot] = fromX + distanceToMove*Math.cos(radian);
+			plannedY[slot] = fromY + distanceToMove*Math.sin(radian);
+			waypointReached = followingPath && distanceToWaypoint - distanceToMove < Position.DISTANCE_TOLERANCE;
+		}
+		int plan = PLANNED | PLANNED_STEP;
+		if (waypointReached)
+			plan |= PLANNED_WAYPOINT_REACHED;
+		if (world.isSolidTile(plannedX[slot], plannedY[slot]))
+			plan |= PLANNED_BLOCKED;
+		modes[slot] = (modes[slot] & ~MOVE_PLAN) | plan;
+	}
+	//The same step as planMove in 16.16 fixed point, scaling the offset to the waypoint instead of using its angle.
+	//Return whether the step reaches the waypoint.
+	private boolean planFixedPointStep(int slot, double waypointX, double waypointY, double reach, boolean followingPath) {
+		int fixedX = FixedPoint.toFixed(x[slot]);
+		int fixedY = FixedPoint.toFixed(y[slot]);
+		int fixedWaypointX = FixedPoint.toFixed(waypointX);
+		int fixedWaypointY = FixedPoint.toFixed(waypointY);
+		long distanceToWaypoint = FixedPoint.sqrt(FixedPoint.distanceSquared(fixedX, fixedY, fixedWaypointX, fixedWaypointY));
+		long distanceToMove = Math.min(distanceToWaypoint, FixedPoint.toFixed(reach));
+		if (distanceToMove == distanceToWaypoint) {
+			fixedX = fixedWaypointX;
+			fixedY = fixedWaypointY;
+		} else {
+			fixedX = FixedPoint.step(fixedX, fixedWaypointX, distanceToMove, distanceToWaypoint);
+			fixedY = FixedPoint.step(fixedY, fixedWaypointY, distanceToMove, distanceToWaypoint);
+		}
+		plannedX[slot] = FixedPoint.toDouble(fixedX);
+		plannedY[slot] = FixedPoint.toDouble(fixedY);
+		return followingPath && distanceToWaypoint - distanceToMove < FixedPoint.DISTANCE_TOLERANCE;
+	}
+	private static double distanceSquared(double x, double y, double otherX, double otherY) {
+		double dx = x - otherX;
+		double dy = y - otherY;
+		return dx*dx + dy*dy;
+	}
+	//Find the tiles to walk through to reach the target. Without a route the unit walks straight until blocked.
+	private void planPath(int slot, double toX, double toY) {
+		Terrain terrain = world.getTerrain();
+		int tileX = terrain.tileXOf(x[slot]);
+		int tileY = terrain.tileYOf(y[slot]);
+		int targetTileX = terrain.tileXOf(toX);
+		int targetTileY = terrain.tileYOf(toY);
+		routeTargetVersions[slot] = targetVersion[slot];
+		//The field leads to the nearest source, which is only the target when both tiles share it.
+		DistanceField field = targetFields[slot];
+		int source = field == null ? DistanceField.NO_SOURCE : field.nearestSource(tileX, tileY);
+		if (source != DistanceField.NO_SOURCE && source == field.nearestSource(targetTileX, targetTileY)) {
+			modes[slot] |= WALKING_FIELD;
+			paths[slot] = null;
+			routeFieldVersions[slot] = field.getVersion();
+			routeSteps[slot] = field.nextNode(field.nodeOf(tileX, tileY));
+			return;
+		}
+		modes[slot] &= ~WALKING_FIELD;
+		paths[slot] = world.getPathFinder().findPath(tileX, tileY, targetTileX, targetTileY);
+		//The first tile of the path is the one the unit is standing on.
+		routeSteps[slot] = 1;
+	}
+	//Get the next tile to walk to the centre of, NO_NODE when the unit should walk straight to the target.
+	private int nextWaypoint(int slot) {
+		int step = routeSteps[slot];
+		if ((modes[slot] & WALKING_FIELD) != 0)
+			return step != DistanceField.NO_NODE && targetFields[slot].getDistance(step) > 0 ? step : DistanceField.NO_NODE;
+		int[] path = paths[slot];
+		return path != null && step < path.length - 1 ? path[step] : DistanceField.NO_NODE;
+	}
+	//Get the map position of the centre of a path tile.
+	private double tileCentreX(int node) {
+		return (world.getPathFinder().tileXOf(node) + 0.5) * world.getTerrain().getTileWidth();
+	}
+	private double tileCentreY(int node) {
+		return (world.getPathFinder().tileYOf(node) + 0.5) * world.getTerrain().getTileHeight();
+	}
+	//Grow every array to a new capacity, keeping the stored units.
+	private void allocate(int capacity) {
+		units = copyOf(units, new Unit[capacity]);
+		positions = copyOf(positions, new UnitPosition[capacity]);
+		x = copyOf(x, new double[capacity]);
+		y = copyOf(y, new double[capacity]);
+		targetX = copyOf(targetX, new double[capacity]);
+		targetY = copyOf(targetY, new double[capacity]);
+		targetVersion = copyOf(targetVersion, new int[capacity]);
+		speed = copyOf(speed, new double[capacity]);
+		flags = copyOf(flags, new int[capacity]);
+		modes = copyOf(modes, new int[capacity]);
+		cargo = copyOf(cargo, new int[capacity]);
+		targetFields = copyOf(targetFields, new DistanceField[capacity]);
+		paths = copyOf(paths, new int[capacity][]);
+		routeSteps = copyOf(routeSteps, new int[capacity]);
+		routeTargetVersions = copyOf(routeTargetVersions, new int[capacity]);
+		routeFieldVersions = copyOf(routeFieldVersions, new int[capacity]);
+		plannedX = copyOf(plannedX, new double[capacity]);
+		plannedY = copyOf(plannedY, new double[capacity]);
+		plannedResources = copyOf(plannedResources, new long[capacity]);
+	}
+	private <A> A copyOf(A from, A to) {
+		if (from != null)
+			System.arraycopy(from, 0, to, 0, size);
+		return to;
+	}
+}
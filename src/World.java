@@ -1,9 +1,6 @@
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Input;
@@ -16,11 +13,7 @@ import org.newdawn.slick.tiled.TiledMap;
  */
 public class World {
 	private static final String MAP_PATH = "assets/main.tmx";
-	private static final int TILEDMAP_LAYER_INDEX=0;
 	private static final String INITIALISATION_FILE_PATH = "assets/objects.csv";
-	private static final int OBJECT_NAME_INDEX=0;
-	private static final int X_POSITION_INDEX =1;
-	private static final int Y_POSITION_INDEX =2;
 	//Name strings of each elements in the world.
 	private static final String COMMAND_CENTRE_NAME = "command_centre";
 	private static final String FACTORY_NAME = "factory";
@@ -31,72 +24,181 @@ public class World {
 	private static final String SCOUT_NAME = "scout";
 	private static final String BUILDER_NAME = "builder";
 	private static final String TRUCK_NAME = "truck";
-	//Map property attributes.
-	private static final String SOILD_TILE_PROPERTY_NAME = "solid";
-	private static final String SOLID_TILE_PROPERTY_VALUE_TRUE = "true";
-	private static final String OCCUPIED_TILE_PROPERTY_NAME = "occupied";
-	private static final String OCCUPIED_TILE_PROPERTY_VALUE_TRUE = "true";
-	//Constant value to indicate no mouse input currently.
-	private static final int NO_MOUSE_BUTTON = -1;
-	private static final Position AMOUNT_SATATEMENT_LOCATION = new Position(32,32);
+	//The names accepted in the initialisation file, the type of a row is the index of its name.
+	private static final String[] OBJECT_NAMES = {COMMAND_CENTRE_NAME, FACTORY_NAME, METAL_NAME, UNOBTAINIUM_NAME,
+			PYLON_NAME, ENGINEER_NAME, SCOUT_NAME, BUILDER_NAME, TRUCK_NAME};
+	private static final int COMMAND_CENTRE_TYPE = 0;
+	private static final int FACTORY_TYPE = 1;
+	private static final int METAL_TYPE = 2;
+	private static final int UNOBTAINIUM_TYPE = 3;
+	private static final int PYLON_TYPE = 4;
+	private static final int ENGINEER_TYPE = 5;
+	private static final int SCOUT_TYPE = 6;
+	private static final int BUILDER_TYPE = 7;
+	private static final int TRUCK_TYPE = 8;
+	//The number keys choosing the menu items of the selected object, the first item at index 0.
+	private static final int[] MENU_KEYS = {Input.KEY_1, Input.KEY_2, Input.KEY_3};
+	private static final Position AMOUNT_SATATEMENT_LOCATION = new MapPosition(32,32);
+	//Objects this far outside the screen can still be partly visible, half the size of the largest sprite.
+	private static final double RENDER_MARGIN = 48;
+	//Fewest units for which planning the units in parallel pays for handing the work to other threads.
+	private static final int PARALLEL_UNIT_THRESHOLD = 512;
 
-	private TiledMap map;
+	//The tile flags used by the simulation, and the Slick map which is only loaded for rendering.
+	private Terrain terrain;
+	private PathFinder pathFinder;
+	//Walking distance to the nearest command centre, with source indexes matching the commandCentres list.
+	private DistanceField commandCentreField;
+	private TiledMap map = null;
 	private Camera camera;
 
 	private List<Unit> units = new ArrayList<Unit>();
+	//The hot state of every unit, in primitive arrays.
+	private UnitStore unitStore = new UnitStore(this);
 	private List<Engineer> engineers = new ArrayList<Engineer>();
 	private List<Building> buildings = new ArrayList<Building>();
 	private List<CommandCentre>  commandCentres = new ArrayList<CommandCentre>();
 	private List<Resource> resources = new ArrayList<Resource>();
+	//Spatial indexes for looking up objects around a position.
+	private SpatialGrid<Unit> unitGrid;
+	private SpatialGrid<Building> buildingGrid;
+	private SpatialGrid<Resource> resourceGrid;
+	//Areas which tell buildings about units coming near them.
+	private ProximityTriggers proximityTriggers;
+	//The objects on screen in the current frame, reused between frames.
+	private List<Resource> visibleResources = new ArrayList<Resource>();
+	private List<Building> visibleBuildings = new ArrayList<Building>();
+	private List<Unit> visibleUnits = new ArrayList<Unit>();
+	//Collects the sprites of a frame to draw them grouped by texture.
+	private SpriteBatch spriteBatch = new SpriteBatch();
+	//Hands out the generational handles objects keep to refer to each other.
+	private EntityRegistry registry = new EntityRegistry();
+	//The objects destroyed in the current frame, removed at the end of the update. Reused between frames.
+	private List<GameObject> destroyQueue = new ArrayList<GameObject>();
     //Initially both resources amount is zero
     private int unobtainiumAmount = 0;
 	private int metalAmount = 0;
-	private String resourceAmount = "Metal: %d\nUnobtainium: %d" ;
+	//Amount each engineer carries, raised by activating pylons.
+	private int engineerCapacity = Engineer.INITIAL_CAPACITY;
+	//Runs out the training, mining and building timers of the objects.
+	private TimerWheel timerWheel = new TimerWheel();
+	private Hud hud = new Hud();
+	//Times the phases of update and render, only reads the clock while enabled.
+	private FrameProfiler profiler = new FrameProfiler();
 	private GameObject selectedObject = null;
+	//The commands read from the input in the current frame, and the map position of the command being applied.
+	private CommandBuffer commands = new CommandBuffer();
+	private Position commandPos = new MapPosition(0, 0);
+	//Writes every tick to a recording while a session is recorded.
+	private InputRecorder recorder = null;
+	private HashRecorder hashRecorder = null;
+	private boolean parallelUnitUpdate = false;
+	private boolean fixedPointMovement = false;
 	
 	/**
-	 * Initialize World class
+	 * Initialize World class. The world starts headless, call attachRenderer before rendering it.
 	 * @throws SlickException
 	 */
 	public World() throws SlickException {
-		map = new TiledMap(MAP_PATH);
-		camera = new Camera(map);
-		initializeMap(INITIALISATION_FILE_PATH);
+		this(INITIALISATION_FILE_PATH);
 	}
-	//Read a given file and allocate text of each row into proper GameObject and their position
+	/**
+	 * Initialize World class with the objects listed in a given file instead of the default one.
+	 * @param initialisationFilePath The file listing a game object name and position on each row,
+	 *        or null for an empty world, like one a snapshot is loaded into.
+	 * @throws SlickException
+	 */
+	public World(String initialisationFilePath) throws SlickException {
+		terrain = new Terrain(new TileGrid(MAP_PATH));
+		camera = new Camera(terrain);
+		pathFinder = new PathFinder(terrain);
+		commandCentreField = new DistanceField(terrain);
+		unitGrid = new SpatialGrid<Unit>(terrain.getTileWidth(), terrain.getWidth(), terrain.getHeight());
+		buildingGrid = new SpatialGrid<Building>(terrain.getTileWidth(), terrain.getWidth(), terrain.getHeight());
+		resourceGrid = new SpatialGrid<Resource>(terrain.getTileWidth(), terrain.getWidth(), terrain.getHeight());
+		proximityTriggers = new ProximityTriggers(this, terrain.getTileWidth(), terrain.getWidth(), terrain.getHeight());
+		if (initialisationFilePath != null)
+			initializeMap(initialisationFilePath);
+	}
+	/**
+	 * Load the Slick map so the world can be rendered. Needs an OpenGL context.
+	 * @throws SlickException
+	 */
+	public void attachRenderer() throws SlickException {
+		if (map == null)
+			map = new TiledMap(MAP_PATH);
+	}
+	/**
+	 * Check whether the world can be rendered.
+	 * @return Whether attachRenderer has been called.
+	 */
+	public boolean isRendererAttached() {
+		return map != null;
+	}
+	/**
+	 * Give the images of all the objects back to the image cache, before the world is replaced by another.
+	 * An object rendered later takes its image again.
+	 */
+	public void releaseImages() {
+		for (int i = 0; i < resources.size(); i++) {
+			resources.get(i).releaseImage();
+		}
+		for (int i = 0; i < buildings.size(); i++) {
+			buildings.get(i).releaseImage();
+		}
+		for (int i = 0; i < units.size(); i++) {
+			units.get(i).releaseImage();
+		}
+	}
+	//Read a given file and allocate each row into proper GameObject and their position.
+	//The file is parsed in parallel, then the objects are added in the order of the file.
 	private void initializeMap(String fileName) throws SlickException {
-		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {			
-			String text;	
-			while ((text = br.readLine()) != null) {
-				//the format of the file:gameObject name, xPos, yPos.
-				String[] column = text.split(",");
-				String objectType = column[OBJECT_NAME_INDEX];
-				Position pos = new Position(Double.parseDouble(column[X_POSITION_INDEX]), Double.parseDouble(column[Y_POSITION_INDEX]));
-				if (objectType.equals(COMMAND_CENTRE_NAME))
-					addNewBuilding(new CommandCentre(this, pos));
-				else if (objectType.equals(FACTORY_NAME))
-					addNewBuilding(new Factory(this, pos));
-				else if (objectType.equals(METAL_NAME))
-					addNewResource(new Metal(this, pos));
-				else if (objectType.equals(UNOBTAINIUM_NAME))
-					addNewResource(new Unobtainium(this, pos));
-				else if (objectType.equals(PYLON_NAME))
-					addNewBuilding(new Pylon(this, pos));
-				else if (objectType.equals(ENGINEER_NAME))
-					addNewUnit(new Engineer(this, pos));
-				else if (objectType.equals(SCOUT_NAME))
-					addNewUnit(new Scout(this, pos));
-				else if (objectType.equals(BUILDER_NAME))
-					addNewUnit(new Builder(this, pos));
-				else if (objectType.equals(TRUCK_NAME))
-					addNewUnit(new Truck(this, pos));		
-			}			
-		} catch (FileNotFoundException e) {
-			System.out.println("File " + fileName + " not found:");
-			e.printStackTrace();
-		} catch (IOException e) {
-			System.out.println("Error reading " + fileName + ":");
-			e.printStackTrace();
+		ObjectFileLoader file;
+		try {
+			file = new ObjectFileLoader(fileName, OBJECT_NAMES);
+		} catch (SlickException e) {
+			System.out.println(e.getMessage());
+			return;
+		}
+		file.reportErrors();
+		int unitCount = file.count(ENGINEER_TYPE) + file.count(SCOUT_TYPE) + file.count(BUILDER_TYPE) + file.count(TRUCK_TYPE);
+		unitStore.ensureCapacity(unitStore.size() + unitCount);
+		for (ObjectFileChunk chunk: file.getChunks()) {
+			for (int row = 0; row < chunk.size(); row++) {
+				addNewObject(chunk.getType(row), new MapPosition(chunk.getX(row), chunk.getY(row)));
+			}
+		}
+	}
+	//Create a game object of a type from the initialisation file and add it to the world.
+	private void addNewObject(int type, Position pos) {
+		switch (type) {
+		case COMMAND_CENTRE_TYPE:
+			addNewBuilding(new CommandCentre(this, pos));
+			break;
+		case FACTORY_TYPE:
+			addNewBuilding(new Factory(this, pos));
+			break;
+		case METAL_TYPE:
+			addNewResource(new Metal(this, pos));
+			break;
+		case UNOBTAINIUM_TYPE:
+			addNewResource(new Unobtainium(this, pos));
+			break;
+		case PYLON_TYPE:
+			addNewBuilding(new Pylon(this, pos));
+			break;
+		case ENGINEER_TYPE:
+			addNewUnit(new Engineer(this, pos));
+			break;
+		case SCOUT_TYPE:
+			addNewUnit(new Scout(this, pos));
+			break;
+		case BUILDER_TYPE:
+			addNewUnit(new Builder(this, pos));
+			break;
+		case TRUCK_TYPE:
+			addNewUnit(new Truck(this, pos));
+			break;
 		}
 	}
 	
@@ -105,22 +207,69 @@ public class World {
 	 * @param newUnit Different type of Unit
 	 */
 	public void addNewUnit(Unit newUnit) {
-		if (newUnit != null) units.add(newUnit);
+		if (newUnit != null) {
+			register(newUnit, units.size());
+			units.add(newUnit);
+			unitGrid.insert(newUnit);
+			proximityTriggers.unitAdded(newUnit);
+		}
 	}
 	/**
 	 * Add new building to the buildings list.
 	 * @param newBuilding Different type of Building
 	 */
 	public void addNewBuilding(Building newBuilding) {
-		if (newBuilding != null) buildings.add(newBuilding);
-		if (newBuilding instanceof CommandCentre) commandCentres.add((CommandCentre)newBuilding);
+		if (newBuilding != null) {
+			register(newBuilding, buildings.size());
+			buildings.add(newBuilding);
+			buildingGrid.insert(newBuilding);
+		}
+		if (newBuilding instanceof CommandCentre) {
+			commandCentres.add((CommandCentre)newBuilding);
+			Position pos = newBuilding.getPos();
+			commandCentreField.addSource(terrain.tileXOf(pos.getX()), terrain.tileYOf(pos.getY()));
+		}
 	}
 	/**
 	 * Add new resource to the resources list.
 	 * @param newRes
 	 */
 	public void addNewResource(Resource newRes) {
-		if (newRes != null) resources.add(newRes);
+		if (newRes != null) {
+			register(newRes, resources.size());
+			resources.add(newRes);
+			resourceGrid.insert(newRes);
+		}
+	}
+	//Give a new object its handle and its index in the list it is added to.
+	private void register(GameObject obj, int listIndex) {
+		obj.setHandle(registry.register(obj));
+		obj.setListIndex(listIndex);
+	}
+	/**
+	 * Remove a destroyed resource or unit from the world at the end of the current update.
+	 * Until then it stays in its list and spatial grid, so the objects updated after it still find it.
+	 * @param obj The destroyed resource or unit.
+	 */
+	public void destroy(GameObject obj) {
+		if ((obj instanceof Resource || obj instanceof Unit) && registry.isAlive(obj.getHandle()))
+			destroyQueue.add(obj);
+	}
+	/**
+	 * Get the object a handle refers to
+	 * @param handle The handle of the object.
+	 * @return The object, or null if it has been removed from the world.
+	 */
+	public GameObject getEntity(long handle) {
+		return registry.get(handle);
+	}
+	/**
+	 * Check whether the object a handle refers to is still in the world
+	 * @param handle The handle of the object.
+	 * @return Whether the object is in the world.
+	 */
+	public boolean isAlive(long handle) {
+		return registry.isAlive(handle);
 	}
 	/**
 	 * Add given amount to the unobtainium 
@@ -156,6 +305,33 @@ public class World {
 	public void setMetalAmount(int metalAmount) {
 		this.metalAmount = metalAmount;
 	}
+	/**
+	 * Get the amount of resource each engineer carries.
+	 * @return engineerCapacity The carrying capacity of engineers.
+	 */
+	public int getEngineerCapacity() {
+		return engineerCapacity;
+	}
+	/**
+	 * Set the amount of resource each engineer carries, like when a saved world is loaded.
+	 * @param engineerCapacity The carrying capacity of engineers.
+	 */
+	public void setEngineerCapacity(int engineerCapacity) {
+		this.engineerCapacity = engineerCapacity;
+	}
+	/**
+	 * Let every engineer carry more, when a pylon is activated.
+	 */
+	public void increaseEngineerCapacity() {
+		engineerCapacity += Engineer.CAPACITY_INCREMENT;
+	}
+	/**
+	 * Get the unobtainium amount.
+	 * @return unobtainiumAmount The current holding unobtainium amount.
+	 */
+	public int getUnobtainiumAmount() {
+		return unobtainiumAmount;
+	}
 	/** 
 	 * @return camera The camera of the world
 	 */
@@ -176,57 +352,211 @@ public class World {
 	public void setSelectedObject(GameObject obj) {
 		selectedObject = obj;
 	}
+	/**
+	 * Check whether the units are planned in parallel before they are updated.
+	 * @return parallelUnitUpdate Whether the parallel unit update is used.
+	 */
+	public boolean isParallelUnitUpdate() {
+		return parallelUnitUpdate;
+	}
+	/**
+	 * Choose whether the units are updated in two phases: first every unit plans its movement and lookups
+	 * in parallel on the common fork-join pool, only reading the world, then the units are updated
+	 * one by one as before, using their plans where nothing has changed since. Both ways give the same result.
+	 * @param parallelUnitUpdate Whether to use the parallel unit update.
+	 */
+	public void setParallelUnitUpdate(boolean parallelUnitUpdate) {
+		this.parallelUnitUpdate = parallelUnitUpdate;
+	}
+	/**
+	 * Check whether the units move in 16.16 fixed point.
+	 * @return fixedPointMovement Whether fixed point movement is used.
+	 */
+	public boolean isFixedPointMovement() {
+		return fixedPointMovement;
+	}
+	/**
+	 * Choose whether the units step towards their targets in 16.16 fixed point, see FixedPoint, instead of
+	 * with the angle to the target. Every step then ends on the fixed point grid and is worked out with integers only,
+	 * so the same session moves the units to exactly the same positions on any machine.
+	 * The two ways give slightly different positions, so the choice is saved with the world.
+	 * @param fixedPointMovement Whether to use fixed point movement.
+	 */
+	public void setFixedPointMovement(boolean fixedPointMovement) {
+		this.fixedPointMovement = fixedPointMovement;
+	}
 	/**
 	 *  Update the world  for a frame.
 	 * @param input The input by the player
 	 * @param delta Time passed since last frame (milliseconds).
 	 * @throws SlickException
 	 */
-	public void update(Input input, int delta) throws SlickException{
-		int mouseButton = NO_MOUSE_BUTTON;
-		Position clickPos = null;
+	public void update(InputSource input, int delta) throws SlickException{
+		commands.clear();
+		readInput(input, commands);
+		update(commands, delta);
+	}
+	/**
+	 * Update the world for a frame, given the player commands instead of the input.
+	 * The commands are applied in order at the start of the frame, before any object is updated.
+	 * @param commands The commands of the player for this frame.
+	 * @param delta Time passed since last frame (milliseconds).
+	 * @throws SlickException
+	 */
+	public void update(CommandBuffer commands, int delta) throws SlickException{
+		if (recorder != null)
+			recorder.recordTick(commands, delta);
+		applyCommands(commands, delta);
+		long phaseStart = profiler.start();
+		timerWheel.advance(delta);
+		phaseStart = profiler.lap(FrameProfiler.UPDATE_TIMERS, phaseStart);
+		updateAllResources(delta);
+		phaseStart = profiler.lap(FrameProfiler.UPDATE_RESOURCES, phaseStart);
+		updateAllBuildings(delta);
+		phaseStart = profiler.lap(FrameProfiler.UPDATE_BUILDINGS, phaseStart);
+		updateAllUnits(delta);
+		phaseStart = profiler.lap(FrameProfiler.UPDATE_UNITS, phaseStart);
+		camera.update();
+		profiler.lap(FrameProfiler.UPDATE_CAMERA, phaseStart);
+		removeDestroyed();
+		/**Reset the selectedObject if the selected object been deselected*/
+		verifySelectedObject();
+		if (recorder != null)
+			recorder.finishTick(this);
+		if (hashRecorder != null)
+			hashRecorder.recordTick(this);
+	}
+	/**
+	 * Translate the input of a frame into player commands. Clicks become select and move commands at the
+	 * clicked map position, number keys train or build for the selected object, and W, A, S, D pan the camera.
+	 * @param input The input by the player
+	 * @param commands The buffer the commands are added to.
+	 */
+	public void readInput(InputSource input, CommandBuffer commands) {
 		// If the mouse button is being clicked, record which button is clicked and its position
 		if (input.isMousePressed(Input.MOUSE_LEFT_BUTTON)) {
-			mouseButton = Input.MOUSE_LEFT_BUTTON;
-			clickPos = camera.screenPosToMapPos(new Position(input.getMouseX(), input.getMouseY()));
+			commands.select(camera.screenXToMapX(input.getMouseX()), camera.screenYToMapY(input.getMouseY()));
 		} else if (input.isMousePressed(Input.MOUSE_RIGHT_BUTTON)) {
-			mouseButton = Input.MOUSE_RIGHT_BUTTON;
-			clickPos = camera.screenPosToMapPos(new Position(input.getMouseX(), input.getMouseY()));
-		}	
-		updateAllResources(input, delta, mouseButton, clickPos);
-		updateAllBuildings(input, delta, mouseButton, clickPos);
-		updateAllUnits(input, delta, mouseButton, clickPos);
-		camera.update(input, delta);
-		/**Reset the selectedObject if the selected object been deselected*/
-		verifySelectedObject();
+			commands.move(camera.screenXToMapX(input.getMouseX()), camera.screenYToMapY(input.getMouseY()));
+		}
+		//Buildings train from a menu of up to three units, units build from a menu of one building.
+		if (selectedObject instanceof Building) {
+			for (int i = 0; i < MENU_KEYS.length; i++) {
+				if (input.isKeyPressed(MENU_KEYS[i])) {
+					commands.train(i + 1);
+					break;
+				}
+			}
+		} else if (selectedObject instanceof Unit && input.isKeyPressed(MENU_KEYS[0])) {
+			commands.build(Unit.KEY_1_INDEX);
+		}
+		//The camera pans in one direction at a time.
+		if (input.isKeyDown(Input.KEY_W)) {
+			commands.panCamera(0, -1);
+		} else if (input.isKeyDown(Input.KEY_S)) {
+			commands.panCamera(0, 1);
+		} else if (input.isKeyDown(Input.KEY_A)) {
+			commands.panCamera(-1, 0);
+		} else if (input.isKeyDown(Input.KEY_D)) {
+			commands.panCamera(1, 0);
+		}
 	}
-	//Update all the resources in the map and remove the resources which are destroyed
-	private void updateAllResources(Input input, int delta, int mouseButton, Position clickPos) {
-		List<Resource> destroyedResources = new ArrayList<Resource>();
-		for (Resource res: resources) {
-			res.update(input, delta, mouseButton, clickPos);
-			if (res.isDestroyed()) {
-				destroyedResources.add(res);
+	//Deliver each command to the objects it concerns.
+	private void applyCommands(CommandBuffer commands, int delta) {
+		for (int i = 0; i < commands.size(); i++) {
+			verifySelectedObject();
+			switch (commands.getType(i)) {
+			case CommandBuffer.SELECT:
+				commandPos.set(commands.getX(i), commands.getY(i));
+				selectAt(commandPos);
+				break;
+			case CommandBuffer.MOVE:
+				commandPos.set(commands.getX(i), commands.getY(i));
+				if (selectedObject instanceof Unit)
+					((Unit)selectedObject).commandMove(commandPos);
+				break;
+			case CommandBuffer.TRAIN:
+				if (selectedObject instanceof Building)
+					((Building)selectedObject).commandTrain(commands.getValue(i));
+				break;
+			case CommandBuffer.BUILD:
+				if (selectedObject instanceof Unit)
+					((Unit)selectedObject).commandBuild(commands.getValue(i));
+				break;
+			case CommandBuffer.CAMERA_PAN:
+				camera.pan((int)commands.getX(i), (int)commands.getY(i), delta);
+				break;
 			}
 		}
-		resources.removeAll(destroyedResources);
+	}
+	//Deselect the selected object and select the unit at a position, or the building there when there is no unit.
+	//Selecting the selected object again leaves nothing selected.
+	private void selectAt(Position pos) {
+		Selectable target = unitAt(pos);
+		if (target == null)
+			target = buildingAt(pos);
+		Selectable previous = selectedObject instanceof Selectable ? (Selectable)selectedObject : null;
+		if (previous != null) {
+			previous.deselect();
+			selectedObject = null;
+		}
+		if (target != null && target != previous)
+			target.select();
+	}
+	//Update all the resources in the map
+	private void updateAllResources(int delta) {
+		for (int i = 0; i < resources.size(); i++) {
+			resources.get(i).update(delta);
+		}
 	}
 	//Update all the buildings on the map
-	private void updateAllBuildings(Input input, int delta, int mouseButton, Position clickPos) {
-		for (Building building: buildings) {
-			building.update(input, delta, mouseButton, clickPos);
+	private void updateAllBuildings(int delta) {
+		//Units entered the triggers of buildings during the last unit update.
+		proximityTriggers.dispatch();
+		for (int i = 0; i < buildings.size(); i++) {
+			buildings.get(i).update(delta);
 		}
 	}
-	//Update all the units on the map
-	private void updateAllUnits(Input input, int delta, int mouseButton, Position clickPos) {
-		List<Unit> destroyedTrucks = new ArrayList<Unit>();
-		for (Unit unit: units) {
-			unit.update(input, delta, mouseButton, clickPos);
-			if (unit instanceof Truck && ((Truck)unit).isDestroyed()) {
-				destroyedTrucks.add(unit);
+	//Update all the units on the map. Package-private so the benchmarks can measure it alone.
+	//The units are updated by their slots in the unit store, which are in the same order as the units list.
+	void updateAllUnits(int delta) {
+		if (parallelUnitUpdate && unitStore.size() >= PARALLEL_UNIT_THRESHOLD)
+			ForkJoinPool.commonPool().invoke(new UnitPlanner(unitStore, 0, unitStore.size(), delta));
+		for (int slot = 0; slot < unitStore.size(); slot++) {
+			unitStore.update(slot, delta);
+		}
+	}
+	//Remove the objects destroyed during the update. Each is replaced by the last object of its list,
+	//and its handle is released, so the handles other objects still keep of it no longer resolve.
+	private void removeDestroyed() {
+		for (int i = 0; i < destroyQueue.size(); i++) {
+			GameObject obj = destroyQueue.get(i);
+			//An object destroyed twice in one update is only removed once.
+			if (!registry.isAlive(obj.getHandle()))
+				continue;
+			if (obj instanceof Resource) {
+				resourceGrid.remove((Resource)obj);
+				swapRemove(resources, (Resource)obj);
+			} else {
+				unitGrid.remove((Unit)obj);
+				unitStore.remove((Unit)obj);
+				swapRemove(units, (Unit)obj);
 			}
+			registry.release(obj.getHandle());
+			obj.setHandle(EntityRegistry.NO_HANDLE);
+			obj.releaseImage();
+		}
+		destroyQueue.clear();
+	}
+	//Remove an object from its list by moving the last object of the list into its index.
+	private static <T extends GameObject> void swapRemove(List<T> list, T obj) {
+		int index = obj.getListIndex();
+		T last = list.remove(list.size() - 1);
+		if (last != obj) {
+			list.set(index, last);
+			last.setListIndex(index);
 		}
-		units.removeAll(destroyedTrucks);
+		obj.setListIndex(GameObject.NOT_LISTED);
 	}
 	/**
 	 * Draw the menu list on the screen.
@@ -243,18 +573,38 @@ public class World {
 	 * @throws SlickException
 	 */
 	public void render(Graphics g) throws SlickException{
+		long phaseStart = profiler.start();
 		map.render(getMapRenderX(), getMapRenderY());
-		for (Resource res: resources) {
-			res.render();
+		phaseStart = profiler.lap(FrameProfiler.RENDER_MAP, phaseStart);
+		//Only draw the objects which are on screen.
+		double left = camera.getLeft() - RENDER_MARGIN;
+		double top = camera.getTop() - RENDER_MARGIN;
+		double right = camera.getLeft() + App.WINDOW_WIDTH + RENDER_MARGIN;
+		double bottom = camera.getTop() + App.WINDOW_HEIGHT + RENDER_MARGIN;
+		visibleResources.clear();
+		resourceGrid.inRect(left, top, right, bottom, visibleResources);
+		for (int i = 0; i < visibleResources.size(); i++) {
+			visibleResources.get(i).render(spriteBatch);
 		}
-		for (Building building: buildings) {
-			building.render();
+		phaseStart = profiler.lap(FrameProfiler.RENDER_RESOURCES, phaseStart);
+		visibleBuildings.clear();
+		buildingGrid.inRect(left, top, right, bottom, visibleBuildings);
+		for (int i = 0; i < visibleBuildings.size(); i++) {
+			visibleBuildings.get(i).render(spriteBatch);
 		}
-		for (Unit unit: units) {
-			unit.render();
+		phaseStart = profiler.lap(FrameProfiler.RENDER_BUILDINGS, phaseStart);
+		visibleUnits.clear();
+		unitGrid.inRect(left, top, right, bottom, visibleUnits);
+		for (int i = 0; i < visibleUnits.size(); i++) {
+			visibleUnits.get(i).render(spriteBatch);
 		}
+		phaseStart = profiler.lap(FrameProfiler.RENDER_UNITS, phaseStart);
+		spriteBatch.flush();
+		phaseStart = profiler.lap(FrameProfiler.RENDER_SPRITES, phaseStart);
 		renderMenu(g);
 		renderAvailableRes(g);
+		profiler.lap(FrameProfiler.RENDER_HUD, phaseStart);
+		profiler.render(g, this);
 	}
 	
 
@@ -263,7 +613,7 @@ public class World {
 	 * @param g The Slick graphics object, used for drawing.
 	 */
 	public void renderAvailableRes(Graphics g) {
-		g.drawString(String.format(resourceAmount, metalAmount, unobtainiumAmount), (float)AMOUNT_SATATEMENT_LOCATION.getX(), (float)AMOUNT_SATATEMENT_LOCATION.getY());
+		g.drawString(hud.getResourceText(metalAmount, unobtainiumAmount), (float)AMOUNT_SATATEMENT_LOCATION.getX(), (float)AMOUNT_SATATEMENT_LOCATION.getY());
 	}
 	/**
 	 * Identify whether a given position tile is solid
@@ -271,10 +621,16 @@ public class World {
 	 * @return The result whether the tile is solid
 	 */
 	public boolean isSolidTile(Position pos) {
-		int tileWIndex = (int)(pos.getX()/map.getTileWidth());
-		int tileHIndex = (int)(pos.getY()/map.getTileHeight());
-		int tileId = map.getTileId(tileWIndex, tileHIndex, TILEDMAP_LAYER_INDEX);
-		return SOLID_TILE_PROPERTY_VALUE_TRUE.equals(map.getTileProperty(tileId, SOILD_TILE_PROPERTY_NAME,""));
+		return terrain.isSolidAt(pos.getX(), pos.getY());
+	}
+	/**
+	 * Identify whether a given map point is on a solid tile
+	 * @param x The x-position on the map
+	 * @param y The y-position on the map
+	 * @return The result whether the tile is solid
+	 */
+	public boolean isSolidTile(double x, double y) {
+		return terrain.isSolidAt(x, y);
 	}
 	/**
 	 * Identify whether a given position tile is occupied
@@ -282,10 +638,15 @@ public class World {
 	 * @return The result whether the tile is occupied
 	 */
 	public boolean isOccupiedTile(Position pos) {
-		int tileWIndex = (int)(pos.getX()/map.getTileWidth());
-		int tileHIndex = (int)(pos.getY()/map.getTileHeight());
-		int tileId = map.getTileId(tileWIndex, tileHIndex, TILEDMAP_LAYER_INDEX);
-		return OCCUPIED_TILE_PROPERTY_VALUE_TRUE.equals(map.getTileProperty(tileId, OCCUPIED_TILE_PROPERTY_NAME,""));
+		return terrain.isOccupiedAt(pos.getX(), pos.getY());
+	}
+	/**
+	 * Mark the tile of a given position as occupied or free
+	 * @param pos The position on the map
+	 * @param occupied Whether the tile is occupied
+	 */
+	public void setOccupiedTile(Position pos, boolean occupied) {
+		terrain.setOccupied(terrain.tileXOf(pos.getX()), terrain.tileYOf(pos.getY()), occupied);
 	}
 	//Convert the camera X-location on map to the render location of map.
 	private int getMapRenderX() {
@@ -298,12 +659,162 @@ public class World {
 		return mapTop;
 	}
 	/**
-	 * Get the map of the world
-	 * @return map The map of the world.
+	 * Get the Slick map of the world, used for rendering
+	 * @return map The map of the world, null until attachRenderer is called.
 	 */
 	public TiledMap getMap() {
 		return map;
 	}
+	/**
+	 * Get the HUD which caches the text drawn over the map
+	 * @return hud The HUD of the world.
+	 */
+	public Hud getHud() {
+		return hud;
+	}
+	/**
+	 * Get the profiler timing the phases of update and render
+	 * @return profiler The frame profiler of the world.
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+	/**
+	 * Use a given profiler, like the one of the world this world replaces
+	 * @param profiler The frame profiler.
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		this.profiler = profiler;
+	}
+	/**
+	 * Get the recorder the ticks of the world are written to
+	 * @return recorder The input recorder, null when the world is not recorded.
+	 */
+	public InputRecorder getRecorder() {
+		return recorder;
+	}
+	/**
+	 * Record the following ticks of the world with a given recorder, or stop recording
+	 * @param recorder The input recorder, created for this world, or null to stop recording.
+	 */
+	public void setRecorder(InputRecorder recorder) {
+		this.recorder = recorder;
+	}
+	/**
+	 * Get the recorder the checksum of the world is written to after every tick
+	 * @return hashRecorder The hash recorder, null when no hash stream is written.
+	 */
+	public HashRecorder getHashRecorder() {
+		return hashRecorder;
+	}
+	/**
+	 * Write the checksum of the world after each of the following ticks with a given recorder, or stop writing it
+	 * @param hashRecorder The hash recorder, or null to stop.
+	 */
+	public void setHashRecorder(HashRecorder hashRecorder) {
+		this.hashRecorder = hashRecorder;
+	}
+	/**
+	 * Get the sprite batch the world is drawn with, for its draw call statistics
+	 * @return spriteBatch The sprite batch of the world.
+	 */
+	public SpriteBatch getSpriteBatch() {
+		return spriteBatch;
+	}
+	/**
+	 * Get the path finder of the world, shared by all units
+	 * @return pathFinder The path finder of the world.
+	 */
+	public PathFinder getPathFinder() {
+		return pathFinder;
+	}
+	/**
+	 * Get the walking distance field to the command centres, used for routing engineers
+	 * @return commandCentreField The distance field whose source indexes match getCommandCentres.
+	 */
+	public DistanceField getCommandCentreField() {
+		return commandCentreField;
+	}
+	/**
+	 * Get the command centre with the shortest walk from a position
+	 * @param pos The position on the map
+	 * @return The nearest command centre, or null if none can be reached by walking.
+	 */
+	public CommandCentre nearestCommandCentre(Position pos) {
+		int index = commandCentreField.nearestSource(terrain.tileXOf(pos.getX()), terrain.tileYOf(pos.getY()));
+		return index == DistanceField.NO_SOURCE ? null : commandCentres.get(index);
+	}
+	/**
+	 * Get the timer wheel of the world, which the timers of the objects are scheduled on
+	 * @return timerWheel The timer wheel of the world.
+	 */
+	public TimerWheel getTimerWheel() {
+		return timerWheel;
+	}
+	/**
+	 * Get the time until the next timer of an object runs out.
+	 * @return The time in millisecond, or -1 if no timer is running.
+	 */
+	public long getMillisToNextTimer() {
+		return timerWheel.getMillisToNextExpiry();
+	}
+	/**
+	 * Get the number of following updates without commands which would change nothing but the time,
+	 * so a headless world can skip them with skipUpdates. That is while every unit is settled, no unit has
+	 * entered a proximity trigger yet to be dispatched, and no timer runs out.
+	 * Updates are never skipped while the world is recorded, as every update is written then.
+	 * @param delta Time passed in each update (milliseconds).
+	 * @return The number of updates, 0 when the next update may change the world.
+	 */
+	public long getSkippableUpdates(int delta) {
+		if (recorder != null || hashRecorder != null || proximityTriggers.hasPendingEvents())
+			return 0;
+		for (int i = 0; i < units.size(); i++) {
+			if (!units.get(i).isSettled())
+				return 0;
+		}
+		long millisToNextTimer = getMillisToNextTimer();
+		if (millisToNextTimer < 0)
+			return Long.MAX_VALUE;
+		//The timer runs out in the update which reaches its due time, so the updates before that one are skipped.
+		return (millisToNextTimer - 1) / delta;
+	}
+	/**
+	 * Skip updates found by getSkippableUpdates, by only advancing the time of the timers.
+	 * @param count The number of updates, at most getSkippableUpdates.
+	 * @param delta Time passed in each update (milliseconds).
+	 */
+	public void skipUpdates(long count, int delta) {
+		timerWheel.advance(count * delta);
+	}
+	/**
+	 * Get the proximity triggers of the world, which buildings register their areas with
+	 * @return proximityTriggers The proximity triggers of the world.
+	 */
+	public ProximityTriggers getProximityTriggers() {
+		return proximityTriggers;
+	}
+	/**
+	 * Get the spatial index of the units, which the unit store updates when a unit moves to another cell.
+	 * @return unitGrid The unit grid.
+	 */
+	public SpatialGrid<Unit> getUnitGrid() {
+		return unitGrid;
+	}
+	/**
+	 * Get the struct-of-arrays storage of the unit state
+	 * @return unitStore The unit store of the world.
+	 */
+	public UnitStore getUnitStore() {
+		return unitStore;
+	}
+	/**
+	 * Get the tile flags of the world, used for simulation
+	 * @return terrain The tile flags of the world.
+	 */
+	public Terrain getTerrain() {
+		return terrain;
+	}
 	/**
 	 * Get the engineer list of the world
 	 * @return engineers The engineer list of the world.
@@ -346,13 +857,7 @@ public class World {
 	 * @return res The resource on the position
 	 */
 	public Resource resourceAt(Position pos) {
-		if (pos == null)
-			return null;	
-		for (Resource res:resources) {
-			if (pos.distance(res.getPos()) <= Resource.RESOURCE_AREA_RADIUS) 
-				return res;
-		}
-		return null;
+		return resourceGrid.nearest(pos, Resource.RESOURCE_AREA_RADIUS);
 	}
 	/**
 	 * Identify the building on a given position
@@ -360,13 +865,7 @@ public class World {
 	 * @return res The building on the position
 	 */
 	public Building buildingAt(Position pos) {
-		if (pos == null) 
-			return null;	
-		for (Building building:buildings) {
-			if (pos.distance(building.getPos()) <= Building.BUILDING_AREA_RADIUS) 
-				return building;
-		}
-		return null;
+		return buildingGrid.nearest(pos, Building.BUILDING_AREA_RADIUS);
 	}
 	/**
 	 * Identify the unit on a given position
@@ -374,13 +873,46 @@ public class World {
 	 * @return res The unit on the position
 	 */
 	public Unit unitAt(Position pos) {
-		if (pos == null)
-			return null;
-		for (Unit unit:units) {
-			if (pos.distance(unit.getPos()) <= Unit.SELECTION_AREA_RADIUS) 
-				return unit;
-		}
-		return null;
+		return unitAt(pos, Unit.SELECTION_AREA_RADIUS);
+	}
+	/**
+	 * Identify the unit closest to a given position within a radius
+	 * @param pos The given position 
+	 * @param radius The largest distance the unit can be away from the position
+	 * @return The nearest unit within the radius, or null if there is none
+	 */
+	public Unit unitAt(Position pos, double radius) {
+		return unitGrid.nearest(pos, radius);
+	}
+	/**
+	 * Collect all the units within a radius of a given position
+	 * @param pos The given position 
+	 * @param radius The largest distance a unit can be away from the position
+	 * @param result The list which the found units are added to
+	 * @return result The given list
+	 */
+	public List<Unit> unitsWithin(Position pos, double radius, List<Unit> result) {
+		return unitGrid.within(pos, radius, result);
+	}
+	/**
+	 * Collect all the buildings within a radius of a given position
+	 * @param pos The given position 
+	 * @param radius The largest distance a building can be away from the position
+	 * @param result The list which the found buildings are added to
+	 * @return result The given list
+	 */
+	public List<Building> buildingsWithin(Position pos, double radius, List<Building> result) {
+		return buildingGrid.within(pos, radius, result);
+	}
+	/**
+	 * Collect all the resources within a radius of a given position
+	 * @param pos The given position 
+	 * @param radius The largest distance a resource can be away from the position
+	 * @param result The list which the found resources are added to
+	 * @return result The given list
+	 */
+	public List<Resource> resourcesWithin(Position pos, double radius, List<Resource> result) {
+		return resourceGrid.within(pos, radius, result);
 	}
 	/**Reset the selectedObject if it has been deselected*/
 	public void verifySelectedObject() {
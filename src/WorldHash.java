@@ -0,0 +1,99 @@
+import java.util.List;
+
+/**
+ * Hashes the simulated state of a world into a single number, so two runs of the same session can be compared:
+ * the resource totals, the engineer capacity, and the position, amount, target, flags, cargo and timers
+ * of every object. Rendering state, like the camera and images, is left out. Nothing is allocated,
+ * so the hash can be taken every tick.
+ */
+public class WorldHash {
+	//Offset basis and prime of 64-bit FNV-1a, applied to whole values instead of bytes.
+	private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+	//Hashed for a timer which does not exist, so a missing timer differs from a stopped one.
+	private static final int NO_TIMER = -1;
+
+	/**
+	 * Hash the state of a world.
+	 * @param world The world.
+	 * @return The hash, equal for worlds in the same state.
+	 */
+	public static long of(World world) {
+		long hash = OFFSET_BASIS;
+		hash = mix(hash, world.getMetalAmount());
+		hash = mix(hash, world.getUnobtainiumAmount());
+		hash = mix(hash, world.getEngineerCapacity());
+		List<Resource> resources = world.getResources();
+		hash = mix(hash, resources.size());
+		for (int i = 0; i < resources.size(); i++) {
+			hash = mix(hash, ofResource(resources.get(i)));
+		}
+		List<Building> buildings = world.getBuildings();
+		hash = mix(hash, buildings.size());
+		for (int i = 0; i < buildings.size(); i++) {
+			hash = mix(hash, ofBuilding(buildings.get(i)));
+		}
+		List<Unit> units = world.getUnits();
+		hash = mix(hash, units.size());
+		for (int i = 0; i < units.size(); i++) {
+			hash = mix(hash, ofUnit(units.get(i)));
+		}
+		return hash;
+	}
+	/**
+	 * Hash the position and remaining amount of a resource.
+	 * @param res The resource.
+	 * @return The hash of the resource.
+	 */
+	public static long ofResource(Resource res) {
+		long hash = mixPosition(OFFSET_BASIS, res.getPos());
+		return mix(hash, res.getAmount());
+	}
+	/**
+	 * Hash the position and training timer of a building.
+	 * @param building The building.
+	 * @return The hash of the building.
+	 */
+	public static long ofBuilding(Building building) {
+		long hash = mixPosition(OFFSET_BASIS, building.getPos());
+		return mixTimer(hash, building.getTrainingTimer());
+	}
+	/**
+	 * Hash the position, target, flags, cargo and timers of a unit.
+	 * @param unit The unit.
+	 * @return The hash of the unit.
+	 */
+	public static long ofUnit(Unit unit) {
+		long hash = mixPosition(OFFSET_BASIS, unit.getPos());
+		UnitStore store = unit.getStore();
+		int slot = unit.getStoreSlot();
+		hash = mix(hash, Double.doubleToLongBits(store.getTargetX(slot)));
+		hash = mix(hash, Double.doubleToLongBits(store.getTargetY(slot)));
+		hash = mix(hash, store.getFlags(slot));
+		hash = mix(hash, store.getCargo(slot));
+		hash = mixTimer(hash, unit.getBuildingTimer());
+		if (unit instanceof Engineer)
+			hash = mixTimer(hash, ((Engineer)unit).getMiningTimer());
+		return hash;
+	}
+	private static long mixPosition(long hash, Position pos) {
+		hash = mix(hash, Double.doubleToLongBits(pos.getX()));
+		return mix(hash, Double.doubleToLongBits(pos.getY()));
+	}
+	private static long mixTimer(long hash, Timer timer) {
+		if (timer == null)
+			return mix(hash, NO_TIMER);
+		hash = mix(hash, timer.isRunning() ? 1 : 0);
+		return mix(hash, timer.getElapsedMillis());
+	}
+	/**
+	 * Fold a value into a hash, then spread its high bits down so small changes reach every bit.
+	 * @param hash The hash so far.
+	 * @param value The value.
+	 * @return The hash including the value.
+	 */
+	public static long mix(long hash, long value) {
+		hash = (hash ^ value) * PRIME;
+		return hash ^ (hash >>> 32);
+	}
+}
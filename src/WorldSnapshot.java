@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Saves a running world to a compact binary file and loads it back.
+ * The file starts with the resource totals, the engineer capacity, the movement mode, the timer order and the camera, followed by
+ * the resources, buildings and units, each written as its type, position and the state of its class.
+ * Files are written through a file channel and read back through a memory-mapped buffer.
+ */
+public class WorldSnapshot {
+	/**Version of the file layout, raised whenever the layout changes.*/
+	public static final int VERSION = 4;
+
+	//"SBWS" at the start of every snapshot file.
+	private static final int MAGIC = 0x53425753;
+	//Type codes of the objects in a snapshot.
+	private static final int METAL_TYPE = 1;
+	private static final int UNOBTAINIUM_TYPE = 2;
+	private static final int COMMAND_CENTRE_TYPE = 3;
+	private static final int FACTORY_TYPE = 4;
+	private static final int PYLON_TYPE = 5;
+	private static final int ENGINEER_TYPE = 6;
+	private static final int SCOUT_TYPE = 7;
+	private static final int BUILDER_TYPE = 8;
+	private static final int TRUCK_TYPE = 9;
+	//Which section the selected object is in.
+	private static final int NO_SELECTION = 0;
+	private static final int BUILDING_SELECTION = 1;
+	private static final int UNIT_SELECTION = 2;
+
+	/**
+	 * Write the whole state of a world to a file, replacing it if it exists.
+	 * @param world The world to save.
+	 * @param path The path of the snapshot file.
+	 * @throws SlickException If the file cannot be written.
+	 */
+	public static void save(World world, String path) throws SlickException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			SnapshotWriter out = new SnapshotWriter(channel);
+			write(world, out);
+			out.flush();
+		} catch (IOException e) {
+			throw new SlickException("Failed to write snapshot " + path, e);
+		}
+	}
+	/**
+	 * Write the whole state of a world, like save, to a writer which other data can follow, like a recording.
+	 * @param world The world to save.
+	 * @param out The writer, which is not flushed.
+	 * @throws IOException If the snapshot cannot be written.
+	 */
+	public static void write(World world, SnapshotWriter out) throws IOException {
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putInt(world.getMetalAmount());
+		out.putInt(world.getUnobtainiumAmount());
+		out.putInt(world.getEngineerCapacity());
+		out.putBoolean(world.isFixedPointMovement());
+		out.putLong(world.getTimerWheel().getNextSequence());
+		out.putDouble(world.getCamera().getLeft());
+		out.putDouble(world.getCamera().getTop());
+
+		//Resources used up and removed from the world are not referenced any more, as their handles no longer resolve.
+		List<Resource> resources = world.getResources();
+		for (int i = 0; i < resources.size(); i++) {
+			out.register(resources.get(i), i);
+		}
+		out.putInt(resources.size());
+		for (Resource res: resources) {
+			writeObject(out, res);
+		}
+
+		List<Building> buildings = world.getBuildings();
+		for (int i = 0; i < buildings.size(); i++) {
+			out.register(buildings.get(i), i);
+		}
+		out.putInt(buildings.size());
+		for (Building building: buildings) {
+			writeObject(out, building);
+		}
+
+		List<Unit> units = world.getUnits();
+		for (int i = 0; i < units.size(); i++) {
+			out.register(units.get(i), i);
+		}
+		out.putInt(units.size());
+		for (Unit unit: units) {
+			writeObject(out, unit);
+		}
+
+		//The camera keeps its saved position when it followed an object no longer in the world.
+		writeSelection(out, world.getCamera().getFollowingObject());
+		writeSelection(out, world.getSelectedObject());
+	}
+	/**
+	 * Create a world in the state saved in a file.
+	 * @param path The path of the snapshot file.
+	 * @return The loaded world, headless like a newly created one.
+	 * @throws SlickException If the file cannot be read or is not a snapshot of this version.
+	 */
+	public static World load(String path) throws SlickException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(new SnapshotReader(buffer), path);
+		} catch (IOException | RuntimeException e) {
+			throw new SlickException("Failed to read snapshot " + path, e);
+		}
+	}
+	/**
+	 * Create a world in the state written by write, reading on from the current position of a reader.
+	 * @param in The reader, positioned at the start of the snapshot.
+	 * @param path The path of the file being read, used in error messages.
+	 * @return The loaded world, headless like a newly created one.
+	 * @throws SlickException If the data is not a snapshot of this version.
+	 */
+	public static World read(SnapshotReader in, String path) throws SlickException {
+		if (in.getInt() != MAGIC)
+			throw new SlickException(path + " is not a world snapshot");
+		int version = in.getInt();
+		if (version != VERSION)
+			throw new SlickException("Unsupported snapshot version " + version + " in " + path);
+		World world = new World(null);
+		world.setMetalAmount(in.getInt());
+		world.addUnobtainiumAmount(in.getInt());
+		world.setEngineerCapacity(in.getInt());
+		world.setFixedPointMovement(in.getBoolean());
+		world.getTimerWheel().setNextSequence(in.getLong());
+		double cameraLeft = in.getDouble();
+		double cameraTop = in.getDouble();
+
+		int resourceCount = in.getInt();
+		for (int i = 0; i < resourceCount; i++) {
+			Resource res = (Resource)readObject(in, world);
+			in.addResource(res);
+			world.addNewResource(res);
+		}
+		int buildingCount = in.getInt();
+		for (int i = 0; i < buildingCount; i++) {
+			Building building = (Building)readObject(in, world);
+			in.addBuilding(building);
+			world.addNewBuilding(building);
+		}
+		int unitCount = in.getInt();
+		for (int i = 0; i < unitCount; i++) {
+			Unit unit = (Unit)readObject(in, world);
+			in.addUnit(unit);
+			world.addNewUnit(unit);
+		}
+
+		world.getCamera().setFollowingObject(readSelection(in));
+		world.getCamera().setPosition(cameraLeft, cameraTop);
+		world.setSelectedObject(readSelection(in));
+		return world;
+	}
+	private static void writeObject(SnapshotWriter out, GameObject obj) throws IOException {
+		out.putByte(typeOf(obj));
+		out.putDouble(obj.getPos().getX());
+		out.putDouble(obj.getPos().getY());
+		obj.writeState(out);
+	}
+	private static GameObject readObject(SnapshotReader in, World world) throws SlickException {
+		int type = in.getByte();
+		Position pos = new MapPosition(in.getDouble(), in.getDouble());
+		GameObject obj = create(type, world, pos);
+		obj.readState(in);
+		return obj;
+	}
+	private static void writeSelection(SnapshotWriter out, GameObject obj) throws IOException {
+		if (obj instanceof Building && out.isRegistered(obj))
+			out.putByte(BUILDING_SELECTION);
+		else if (obj instanceof Unit && out.isRegistered(obj))
+			out.putByte(UNIT_SELECTION);
+		else {
+			out.putByte(NO_SELECTION);
+			return;
+		}
+		out.putReference(obj);
+	}
+	private static GameObject readSelection(SnapshotReader in) {
+		int kind = in.getByte();
+		if (kind == BUILDING_SELECTION)
+			return in.getBuildingReference();
+		else if (kind == UNIT_SELECTION)
+			return in.getUnitReference();
+		return null;
+	}
+	private static int typeOf(GameObject obj) throws IOException {
+		if (obj instanceof Metal)
+			return METAL_TYPE;
+		else if (obj instanceof Unobtainium)
+			return UNOBTAINIUM_TYPE;
+		else if (obj instanceof CommandCentre)
+			return COMMAND_CENTRE_TYPE;
+		else if (obj instanceof Factory)
+			return FACTORY_TYPE;
+		else if (obj instanceof Pylon)
+			return PYLON_TYPE;
+		else if (obj instanceof Engineer)
+			return ENGINEER_TYPE;
+		else if (obj instanceof Scout)
+			return SCOUT_TYPE;
+		else if (obj instanceof Builder)
+			return BUILDER_TYPE;
+		else if (obj instanceof Truck)
+			return TRUCK_TYPE;
+		throw new IOException("Cannot save " + obj.getClass().getName());
+	}
+	private static GameObject create(int type, World world, Position pos) throws SlickException {
+		switch (type) {
+		case METAL_TYPE:
+			return new Metal(world, pos);
+		case UNOBTAINIUM_TYPE:
+			return new Unobtainium(world, pos);
+		case COMMAND_CENTRE_TYPE:
+			return new CommandCentre(world, pos);
+		case FACTORY_TYPE:
+			return new Factory(world, pos);
+		case PYLON_TYPE:
+			return new Pylon(world, pos);
+		case ENGINEER_TYPE:
+			return new Engineer(world, pos);
+		case SCOUT_TYPE:
+			return new Scout(world, pos);
+		case BUILDER_TYPE:
+			return new Builder(world, pos);
+		case TRUCK_TYPE:
+			return new Truck(world, pos);
+		default:
+			throw new SlickException("Unknown object type " + type + " in snapshot");
+		}
+	}
+}